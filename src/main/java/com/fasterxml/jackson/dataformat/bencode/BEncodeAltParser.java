@@ -1,47 +1,83 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
-import com.fasterxml.jackson.core.Base64Variant;
-import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.core.ObjectCodec;
-import com.fasterxml.jackson.core.base.ParserBase;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
 import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Reader;
-import java.nio.charset.Charset;
-import java.util.Stack;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.DICTIONARY_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.INTEGER_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LIST_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
 
-public class BEncodeAltParser extends ParserBase {
+/**
+ * Parser reading from an {@link InputStream} through its own read buffer, recycled through the {@link IOContext};
+ * no buffering (or synchronization) is expected from the stream itself. Strings are read on demand: straight from
+ * the buffer, or from the stream when they're larger than the buffer.
+ */
+public class BEncodeAltParser extends BEncodeParserBase {
 
-    private static byte[] MAX_LONG_STR = "9223372036854775807".getBytes(Charset.forName("ISO-8859-1"));
+    private final InputStream in;
 
-    private static byte[] MAX_INT_STR = "2147483647".getBytes(Charset.forName("ISO-8859-1"));
+    /**
+     * Read buffer; {@code _currInputProcessed} is the stream offset of its first byte, {@code _inputPtr} and
+     * {@code _inputEnd} are relative to it.
+     */
+    private final byte[] inputBuffer;
 
-    private final InputStream in;
+    /** whether the digested container is being read */
+    private boolean digesting;
 
-    private ObjectCodec codec;
+    /** start of the buffered bytes not yet fed into the digest */
+    private int digestFrom;
 
+    /** length of the current string or key */
     private int strLen;
 
-    private final byte[] byteBuf;
+    /** raw bytes of the current key: a slice of the read buffer, left untouched until the next token is read */
+    private byte[] nameBytes;
+
+    private int nameStart;
+
+    /** true while the bytes of the current string value haven't been read from the stream */
+    private boolean tokenIncomplete;
 
-    private final char[] charBuf;
+    /** bytes of the current string value still in the stream */
+    private int strRemaining;
 
-    private final Stack<JsonToken> stack = new Stack<>();
+    /** digits (and sign) of the current integer */
+    private byte[] numberBuffer = new byte[24];
 
-    protected BEncodeAltParser(InputStream in, IOContext ctx){
-        super(ctx, 0);
+    private int numberLen;
+
+    protected BEncodeAltParser(InputStream in, IOContext ctx, ByteQuadsCanonicalizer symbols){
+        super(ctx, symbols);
         this.in = in;
-        // one for sign(+/-), and one for end_marker(e)
-        // though this buffer is usually much larger
-        byteBuf = ctx.allocReadIOBuffer(MAX_LONG_STR.length + 2);
-        charBuf = ctx.allocConcatBuffer();
+        inputBuffer = ctx.allocReadIOBuffer();
+    }
+
+    @Override
+    public Object getInputSource(){
+        return in;
+    }
+
+    @Override
+    public int releaseBuffered(OutputStream out) throws IOException{
+        int len = _inputEnd - _inputPtr;
+        if(len > 0){
+            out.write(inputBuffer, _inputPtr, len);
+        }
+        return len;
     }
 
     @Override
@@ -50,144 +86,465 @@ public class BEncodeAltParser extends ParserBase {
     }
 
     @Override
-    public ObjectCodec getCodec(){
-        return codec;
+    protected void _releaseBuffers() throws IOException{
+        super._releaseBuffers();
+        _ioContext.releaseReadIOBuffer(inputBuffer);
     }
 
-    @Override
-    public void setCodec(ObjectCodec codec){
-        this.codec = codec;
+    /**
+     * Refills the buffer once all of it has been consumed.
+     *
+     * @return false if the end of input has been reached
+     */
+    private boolean _loadMore() throws IOException{
+        if(digesting){
+            _updateDigest();
+        }
+        _currInputProcessed += _inputEnd;
+        _inputPtr = _inputEnd = digestFrom = 0;
+        if(_closed){
+            return false;
+        }
+        int read;
+        while ((read = in.read(inputBuffer, 0, inputBuffer.length)) == 0) ;
+        if(read < 0){
+            return false;
+        }
+        _inputEnd = read;
+        return true;
+    }
+
+    /**
+     * Makes at least {@code len} (at most the buffer size) bytes available in the buffer, moving the unread ones to
+     * its start.
+     */
+    private void _ensureAvailable(int len) throws IOException{
+        if(digesting){
+            _updateDigest();
+        }
+        int available = _inputEnd - _inputPtr;
+        System.arraycopy(inputBuffer, _inputPtr, inputBuffer, 0, available);
+        _currInputProcessed += _inputPtr;
+        _inputPtr = digestFrom = 0;
+        _inputEnd = available;
+        while (_inputEnd < len) {
+            int read = in.read(inputBuffer, _inputEnd, inputBuffer.length - _inputEnd);
+            if(read < 0){
+                _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+            }
+            _inputEnd += read;
+        }
+    }
+
+    private int _read() throws IOException{
+        if(_inputPtr >= _inputEnd && !_loadMore()){
+            return -1;
+        }
+        return inputBuffer[_inputPtr++] & 0xFF;
+    }
+
+    /**
+     * Reads up to {@code len} bytes of the current string, from the buffer or, once it's empty, straight from the
+     * stream for reads at least as large as the buffer.
+     *
+     * @return number of bytes read, at least one
+     */
+    private int _readString(byte[] b, int off, int len) throws IOException{
+        if(_inputPtr >= _inputEnd){
+            if(len >= inputBuffer.length){
+                if(digesting){
+                    _updateDigest();
+                }
+                int read = in.read(b, off, len);
+                if(read <= 0){
+                    _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+                }
+                if(digesting){
+                    digest.update(b, off, read);
+                }
+                // buffer is empty, bytes read past it move its offset
+                _currInputProcessed += read;
+                return read;
+            }
+            if(!_loadMore()){
+                _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+            }
+        }
+        int n = Math.min(len, _inputEnd - _inputPtr);
+        System.arraycopy(inputBuffer, _inputPtr, b, off, n);
+        _inputPtr += n;
+        return n;
     }
 
     @Override
-    public JsonToken nextToken() throws IOException{
-        in.mark(1);
-        switch (in.read()) {
-            case 'd':
-                stack.add(START_OBJECT);
+    protected JsonToken _nextToken() throws IOException{
+        if(tokenIncomplete){
+            _skipString();
+        }
+        _resetToken();
+        if(_inputPtr >= _inputEnd && !_loadMore()){
+            if(depth != 0){
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+            close();
+            return _currToken = null;
+        }
+        _tokenInputTotal = _currInputProcessed + _inputPtr;
+        final int c = inputBuffer[_inputPtr++] & 0xFF;
+        final boolean expectKey = inDictionary() && _currToken != FIELD_NAME;
+        if(c == END_SUFFIX){
+            if(inDictionary() && !expectKey){
+                _reportError("missing value for dictionary key");
+            }
+            return _currToken = popContainer();
+        }
+        if(c >= '0' && c <= '9'){
+            strLen = _parseLength(c);
+            if(expectKey){
+                currentName = _readName(strLen);
+                return _currToken = FIELD_NAME;
+            }
+            // value bytes are read on demand, or skipped by the next call
+            strRemaining = strLen;
+            tokenIncomplete = true;
+            return _currToken = VALUE_STRING;
+        }
+        if(expectKey){
+            _reportUnexpectedChar(c, "expected dictionary key (string)");
+        }
+        switch (c) {
+            case DICTIONARY_PREFIX:
+                pushContainer(true);
                 return _currToken = START_OBJECT;
-            case 'l':
-                stack.add(START_ARRAY);
+            case LIST_PREFIX:
+                pushContainer(false);
                 return _currToken = START_ARRAY;
-            case 'i':
+            case INTEGER_PREFIX:
                 // getIntValue is immediately called after return, we need to parse first
-                _parseNumericValue(NR_UNKNOWN);
+                _parseInteger();
                 return _currToken = VALUE_NUMBER_INT;
-            case 'e':
-                _currToken = stack.pop();
-                // this wont actually happen, since nextToken is not called when the whole object is done, after the last END_OBJECT;
-                if(_currToken == null){
-                    _reportError("ran out of nested layers");
-                }
-                switch (_currToken) {
-                    case START_OBJECT:
-                        return _currToken = END_OBJECT;
-                    case START_ARRAY:
-                        return _currToken = END_ARRAY;
-                    default:
-                        throw new RuntimeException("invalid prev state"); // sanity check
-                }
-            case -1:
-                if(stack.size() != 0){
-                    _reportError("unexpected EOF");
-                }
             default:
-                in.reset();
-                if(_currToken == FIELD_NAME){
-                    return _currToken = VALUE_STRING;
+                _reportUnexpectedChar(c, "expected a value");
+                return null; // never gets here
+        }
+    }
+
+    /**
+     * Reads a string length prefix (first digit already consumed) and the ':' following it. Digits are accumulated
+     * directly, the limit is checked on every byte so overlong prefixes fail before anything is allocated.
+     */
+    private int _parseLength(int first) throws IOException{
+        final long max = _stringLengthLimit();
+        long len = first - '0';
+        int c;
+        while (true) {
+            if(len > max){
+                _reportStringLengthExceeded(len);
+            }
+            if((c = _read()) == STRING_SEPARATOR){
+                return (int) len;
+            }
+            if(c < '0' || c > '9'){
+                if(c == -1){
+                    _reportInvalidEOF(": unexpected EOF in string length", VALUE_STRING);
+                }
+                _reportUnexpectedChar(c, "expected digit or ':' in string length");
+            }
+            len = len * 10 + (c - '0');
+        }
+    }
+
+    private String _readName(int len) throws IOException{
+        if(_inputEnd - _inputPtr < len){
+            if(len > inputBuffer.length){
+                byte[] buf = _readBytes(len);
+                nameBytes = buf;
+                nameStart = 0;
+                return _findName(buf, 0, len);
+            }
+            _ensureAvailable(len);
+        }
+        // looked up right in the buffer
+        nameBytes = inputBuffer;
+        nameStart = _inputPtr;
+        _inputPtr += len;
+        return _findName(inputBuffer, nameStart, len);
+    }
+
+    /**
+     * Reads {@code len} bytes into a new array. The length prefix isn't trusted: the array starts at the size of
+     * what is buffered (at least a buffer's worth) and grows as more input actually arrives, so a truncated input
+     * fails at its end instead of after allocating its declared length.
+     */
+    private byte[] _readBytes(int len) throws IOException{
+        byte[] buf = new byte[Math.min(len, Math.max(_inputEnd - _inputPtr, inputBuffer.length))];
+        int offset = 0;
+        while (offset < len) {
+            if(offset == buf.length){
+                buf = Arrays.copyOf(buf, (int) Math.min(len, (long) buf.length << 1));
+            }
+            offset += _readString(buf, offset, buf.length - offset);
+        }
+        return buf;
+    }
+
+    private void _skipString() throws IOException{
+        tokenIncomplete = false;
+        while (strRemaining > 0) {
+            if(_inputPtr < _inputEnd){
+                int n = Math.min(strRemaining, _inputEnd - _inputPtr);
+                _inputPtr += n;
+                strRemaining -= n;
+            } else if(digesting || strRemaining < inputBuffer.length){
+                // skipped bytes have to pass through the digest too
+                if(!_loadMore()){
+                    _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
                 }
-                if(_currToken == START_ARRAY){
-                    return VALUE_STRING; // this is not kept in _currToken because the next value will still be string if 'e' is not encountered
+            } else {
+                long skipped = in.skip(strRemaining);
+                if(skipped <= 0){
+                    // skip() may give up before the end of stream, read() tells them apart
+                    if(in.read() == -1){
+                        _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+                    }
+                    skipped = 1;
                 }
-                return _currToken = FIELD_NAME;
+                strRemaining -= (int) skipped;
+                _currInputProcessed += skipped;
+            }
         }
     }
 
+    /**
+     * Feeds the buffered bytes consumed since the last update into the digest.
+     */
+    private void _updateDigest(){
+        if(_inputPtr > digestFrom){
+            digest.update(inputBuffer, digestFrom, _inputPtr - digestFrom);
+        }
+        digestFrom = _inputPtr;
+    }
+
     @Override
-    public JsonParser skipChildren() throws IOException{
-        if(_currToken == VALUE_STRING){
-            getBinaryValue(null);
-        } else if(_currToken == VALUE_NUMBER_INT){
-            // _parseNumericValue has already been called in nextToken
-            // the integer was consumed there
-        } else if(_currToken == START_ARRAY || _currToken == START_OBJECT){
-            int layer = 1;
-            do {
-                in.mark(1);
-                int c = in.read();
-                switch (c) {
-                    case 'i':
-                    case 'l':
-                    case 'd':
-                        layer++;
-                        break;
-                    case 'e':
-                        layer--;
-                        break;
-                    case -1:
-                        throw new IOException("unexpected EOF");
-                    default:
-                        // handle text containing e
-                        if(c >= '0' && c <= '9'){
-                            in.reset();
-                            getBinaryValue(null);
-                        }
+    protected void _digestStart(){
+        digest.reset();
+        // prefix has just been consumed from the buffer
+        digestFrom = _inputPtr - 1;
+        digesting = true;
+    }
+
+    @Override
+    protected byte[] _digestEnd(){
+        _updateDigest();
+        digesting = false;
+        return digest.digest();
+    }
+
+    @Override
+    protected boolean _skipContainer() throws IOException{
+        _scanContainer(null);
+        return true;
+    }
+
+    /**
+     * Consumes the rest of the current container, copying its bytes to {@code raw} unless it's null.
+     */
+    private void _scanContainer(OutputStream raw) throws IOException{
+        int level = 1;
+        int c;
+        while (level > 0) {
+            c = _read();
+            if(c >= '0' && c <= '9'){
+                strRemaining = strLen = _parseLength(c);
+                if(raw == null){
+                    _skipString();
+                } else {
+                    _writeLength(raw, strLen);
+                    tokenIncomplete = true;
+                    _writeString(raw);
                 }
-            } while (layer > 0);
+                continue;
+            }
+            if(raw != null && c != -1){
+                raw.write(c);
+            }
+            switch (c) {
+                case INTEGER_PREFIX:
+                    do {
+                        if((c = _read()) == -1){
+                            _reportInvalidEOF(": unexpected EOF in integer", VALUE_NUMBER_INT);
+                        }
+                        if(raw != null){
+                            raw.write(c);
+                        }
+                    } while (c != END_SUFFIX);
+                    break;
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    _checkSkipDepth(++level);
+                    break;
+                case END_SUFFIX:
+                    level--;
+                    break;
+                case -1:
+                    _reportInvalidEOF(": unexpected EOF", null);
+                default:
+                    _reportUnexpectedChar(c, "expected a value");
+            }
         }
-        return this;
     }
 
     @Override
-    public String getCurrentName() throws IOException{
-        return getText();
+    protected ByteBuffer _readRawValue() throws IOException{
+        // stream input can't be sliced, the value is copied while it's consumed
+        ByteArrayBuilder raw = new ByteArrayBuilder();
+        switch (_currToken) {
+            case START_OBJECT:
+            case START_ARRAY:
+                raw.write(_currToken == START_OBJECT ? DICTIONARY_PREFIX : LIST_PREFIX);
+                _scanContainer(raw);
+                _currToken = _endSkippedContainer();
+                break;
+            case VALUE_STRING:
+                _writeLength(raw, strLen);
+                if(_binaryValue != null){
+                    // already read by getText() or getBinaryValue()
+                    raw.write(_binaryValue);
+                } else {
+                    _checkUnread();
+                    _writeString(raw);
+                }
+                break;
+            default:
+                raw.write(INTEGER_PREFIX);
+                raw.write(numberBuffer, 0, numberLen);
+                raw.write(END_SUFFIX);
+        }
+        return ByteBuffer.wrap(raw.toByteArray());
     }
 
-    @Override
-    public String getText() throws IOException{
-        return new String(getBinaryValue());
+    private void _parseInteger() throws IOException{
+        byte[] buf = numberBuffer;
+        int len = 0;
+        int c;
+        while ((c = _read()) != END_SUFFIX) {
+            if((c < '0' || c > '9') && (c != '-' || len != 0)){
+                if(c == -1){
+                    _reportInvalidEOF(": unexpected EOF in integer", VALUE_NUMBER_INT);
+                }
+                _reportUnexpectedNumberChar(c, "expected digit or 'e'");
+            }
+            if(len == buf.length){
+                _checkNumberLength(len + 1);
+                numberBuffer = buf = Arrays.copyOf(buf, len << 1);
+            }
+            buf[len++] = (byte) c;
+        }
+        numberLen = len;
+        _setIntegerValue(buf, 0, len);
     }
 
     @Override
-    public char[] getTextCharacters() throws IOException{
-        return getText().toCharArray();
+    protected String _decodeString() throws IOException{
+        if(_binaryValue == null){
+            _binaryValue = _copyString();
+        }
+        return _decodeValue(_binaryValue, 0, _binaryValue.length);
     }
 
     @Override
-    public byte[] getBinaryValue(Base64Variant variant) throws IOException{
-        _parseNumericValue(NR_INT); // this does the real parsing
-        strLen = getIntValue(); // getIntValue simply returns the previously read value
-        try (ByteArrayBuilder builder = new ByteArrayBuilder()) {
-            int len = 0;
-            while (strLen > 0 && (len = in.read(byteBuf, 0, Math.min(strLen, byteBuf.length))) != -1) {
-                builder.write(byteBuf, 0, len);
-                strLen -= len;
+    protected byte[] _copyString() throws IOException{
+        if(_currToken == FIELD_NAME){
+            // raw bytes, keys need not be valid UTF-8 (e.g. info-hashes in a scrape response)
+            return Arrays.copyOfRange(nameBytes, nameStart, nameStart + strLen);
+        }
+        _checkUnread();
+        byte[] bytes;
+        if(strLen <= _inputEnd - _inputPtr){
+            bytes = _copyValue(inputBuffer, _inputPtr, strLen);
+            _inputPtr += strLen;
+        } else {
+            bytes = _readBytes(strLen);
+            if(valueInterner != null && strLen <= valueInterner.getMaxValueLength()){
+                bytes = _copyValue(bytes, 0, strLen);
             }
-            return builder.toByteArray();
         }
+        tokenIncomplete = false;
+        return bytes;
     }
 
     @Override
-    public int getTextLength() throws IOException{
-        return strLen;
+    protected InputStream _openString() throws IOException{
+        if(_currToken == FIELD_NAME){
+            return new ByteArrayInputStream(nameBytes, nameStart, strLen);
+        }
+        _checkUnread();
+        return new StringInputStream();
     }
 
     @Override
-    public int getTextOffset() throws IOException{
-        return 0;
+    protected int _writeString(OutputStream out) throws IOException{
+        if(_currToken == FIELD_NAME){
+            out.write(nameBytes, nameStart, strLen);
+            return strLen;
+        }
+        _checkUnread();
+        while (strRemaining > 0) {
+            if(_inputPtr >= _inputEnd && !_loadMore()){
+                _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+            }
+            int n = Math.min(strRemaining, _inputEnd - _inputPtr);
+            out.write(inputBuffer, _inputPtr, n);
+            _inputPtr += n;
+            strRemaining -= n;
+        }
+        tokenIncomplete = false;
+        return strLen;
+    }
+
+    private void _checkUnread() throws IOException{
+        if(!tokenIncomplete || strRemaining != strLen){
+            _reportError("Current string value has already been read as a stream");
+        }
     }
 
     @Override
-    protected void _parseNumericValue(int expType) throws IOException{
-        JsonToken tmp = _currToken;
-        _currToken = VALUE_NUMBER_INT;
-        _textBuffer.resetWithShared(charBuf, 0, 0);
-        int c;
-        while ((c = in.read()) != ':' && c != 'e' && c != -1) {
-            _textBuffer.append((char) c);
+    protected String _integerText(){
+        return new String(numberBuffer, 0, numberLen, LATIN_1);
+    }
+
+    /**
+     * Reads the current string value straight from the input, up to its length.
+     */
+    private final class StringInputStream extends InputStream {
+        @Override
+        public int read() throws IOException{
+            if(!tokenIncomplete || strRemaining == 0){
+                return -1;
+            }
+            if(_inputPtr >= _inputEnd && !_loadMore()){
+                _reportInvalidEOF(": string of " + strLen + " bytes exceeds end of input", VALUE_STRING);
+            }
+            strRemaining--;
+            return inputBuffer[_inputPtr++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            if(!tokenIncomplete || strRemaining == 0){
+                return -1;
+            }
+            if(len == 0){
+                return 0;
+            }
+            int read = _readString(b, off, Math.min(len, strRemaining));
+            strRemaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException{
+            return tokenIncomplete ? Math.min(_inputEnd - _inputPtr + in.available(), strRemaining) : 0;
         }
-        _intLength = _textBuffer.size();
-        super._parseNumericValue(expType);
-        _currToken = tmp;
     }
 }
@@ -0,0 +1,306 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sidecar index of an append-only archive file holding concatenated bencoded records. For every record it keeps the
+ * file offset of the record and, optionally, of the values at some paths inside it, so a record (or one of its
+ * values) is opened with a {@link BEncodeMappedParser} positioned right at it instead of parsing from the start of
+ * the archive.
+ * <p>
+ * The index is stored next to the archive and only covers complete records; {@link #update()} indexes the records
+ * appended since, so the index can be maintained incrementally. Layout of the sidecar file (big-endian):
+ * <pre>
+ * int    magic ("BEIX")
+ * int    version
+ * int    number of paths, followed by each path as modified UTF-8
+ * long   length of the archive covered by the index
+ * long[] one entry per record: record offset, then the offset of each path (-1 if absent)
+ * </pre>
+ */
+public class BEncodeArchiveIndex {
+
+    private static final int MAGIC = 0x42454958; // BEIX
+
+    private static final int VERSION = 1;
+
+    private final BEncodeFactory factory;
+
+    private final File archive;
+
+    private final File sidecar;
+
+    private final JsonPointer[] paths;
+
+    /** offset of the archive length in the sidecar file */
+    private final long lengthPosition;
+
+    /** entries of all records, {@code 1 + paths.length} longs per record */
+    private long[] entries;
+
+    private int size;
+
+    /** length of the archive covered by the index, where the next record starts */
+    private long indexedLength;
+
+    private BEncodeArchiveIndex(BEncodeFactory factory, File archive, File sidecar, JsonPointer[] paths,
+                                long lengthPosition){
+        this.factory = factory;
+        this.archive = archive;
+        this.sidecar = sidecar;
+        this.paths = paths;
+        this.lengthPosition = lengthPosition;
+        entries = new long[(1 + paths.length) * 64];
+    }
+
+    /**
+     * Same as {@link #open(BEncodeFactory, File, File, JsonPointer...)} with the sidecar file named after the
+     * archive plus ".idx".
+     */
+    public static BEncodeArchiveIndex open(BEncodeFactory factory, File archive, JsonPointer... paths) throws IOException{
+        return open(factory, archive, new File(archive.getPath() + ".idx"), paths);
+    }
+
+    /**
+     * Loads the sidecar index of {@code archive}, or creates it if it doesn't exist, and indexes records appended to
+     * the archive since it was last updated.
+     *
+     * @param paths paths of values whose offsets are indexed, must be the same the index was created with (or none
+     *              to use those of an existing index)
+     */
+    public static BEncodeArchiveIndex open(BEncodeFactory factory, File archive, File sidecar, JsonPointer... paths) throws IOException{
+        BEncodeArchiveIndex index = sidecar.exists() ? _load(factory, archive, sidecar, paths)
+                : _create(factory, archive, sidecar, paths);
+        index.update();
+        return index;
+    }
+
+    private static BEncodeArchiveIndex _create(BEncodeFactory factory, File archive, File sidecar,
+                                               JsonPointer[] paths) throws IOException{
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(paths.length);
+            for (JsonPointer path : paths) {
+                out.writeUTF(path.toString());
+            }
+            long lengthPosition = out.size();
+            out.writeLong(0L);
+            return new BEncodeArchiveIndex(factory, archive, sidecar, paths.clone(), lengthPosition);
+        }
+    }
+
+    private static BEncodeArchiveIndex _load(BEncodeFactory factory, File archive, File sidecar,
+                                             JsonPointer[] paths) throws IOException{
+        try (RandomAccessFile file = new RandomAccessFile(sidecar, "r")) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(file.getChannel()));
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException(sidecar + " is not an archive index");
+            }
+            JsonPointer[] stored = new JsonPointer[in.readInt()];
+            for (int i = 0; i < stored.length; i++) {
+                stored[i] = JsonPointer.compile(in.readUTF());
+            }
+            if(paths.length > 0 && !Arrays.equals(paths, stored)){
+                throw new IllegalArgumentException(sidecar + " indexes " + Arrays.toString(stored) + ", not "
+                        + Arrays.toString(paths));
+            }
+            BEncodeArchiveIndex index = new BEncodeArchiveIndex(factory, archive, sidecar, stored, file.getFilePointer());
+            index.indexedLength = file.readLong();
+            final int stride = 1 + stored.length;
+            long count = (file.length() - file.getFilePointer()) / (8L * stride);
+            index.entries = new long[(int) Math.max(count, 64) * stride];
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+            for (long i = 0; i < count; i++) {
+                int base = index.size * stride;
+                for (int j = 0; j < stride; j++) {
+                    index.entries[base + j] = in.readLong();
+                }
+                // entries written by an update which didn't complete
+                if(index.entries[base] >= index.indexedLength){
+                    break;
+                }
+                index.size++;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Indexes the records appended to the archive since the index was last updated. A record which is still being
+     * written (incomplete at the end of the archive) is left for the next update.
+     *
+     * @return number of records added to the index
+     */
+    public int update() throws IOException{
+        final int stride = 1 + paths.length;
+        final int first = size;
+        long length = indexedLength;
+        if(archive.length() > length){
+            try (BEncodeMappedParser p = factory.createMappedParser(archive, length)) {
+                long[] entry = new long[stride];
+                int[] slots = new int[paths.length];
+                for (int i = 0; i < slots.length; i++) {
+                    slots[i] = i;
+                }
+                while (p.nextToken() != null) {
+                    Arrays.fill(entry, -1L);
+                    entry[0] = p.getTokenLocation().getByteOffset();
+                    _indexValue(p, paths, slots, paths.length, entry);
+                    _add(entry);
+                    length = p.getCurrentLocation().getByteOffset();
+                }
+            } catch (JsonEOFException e) {
+                // incomplete last record, still being written
+            }
+        }
+        if(size == first){
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(sidecar, "rw")) {
+            // entries first: they're ignored on load until the length covers them
+            file.seek(lengthPosition + 8L + (long) first * stride * 8L);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file.getChannel())));
+            for (int i = first * stride; i < size * stride; i++) {
+                out.writeLong(entries[i]);
+            }
+            out.flush();
+            file.setLength(file.getFilePointer());
+            file.seek(lengthPosition);
+            file.writeLong(length);
+        }
+        indexedLength = length;
+        return size - first;
+    }
+
+    /**
+     * Records the offsets of the paths matched by the current value, skipping subtrees none of them leads into.
+     *
+     * @param tails remaining parts of the paths which lead to the current value
+     * @param slots position of each of these paths in {@link #paths}
+     */
+    private void _indexValue(BEncodeParserBase p, JsonPointer[] tails, int[] slots, int count, long[] entry) throws IOException{
+        JsonPointer[] nestedTails = new JsonPointer[count];
+        int[] nestedSlots = new int[count];
+        int nested = 0;
+        for (int i = 0; i < count; i++) {
+            if(tails[i].matches()){
+                entry[1 + slots[i]] = p.getTokenLocation().getByteOffset();
+            } else {
+                nestedTails[nested] = tails[i];
+                nestedSlots[nested++] = slots[i];
+            }
+        }
+        JsonToken t = p.currentToken();
+        if(!t.isStructStart()){
+            return;
+        }
+        if(nested == 0){
+            p.skipChildren();
+            return;
+        }
+        JsonPointer[] childTails = new JsonPointer[nested];
+        int[] childSlots = new int[nested];
+        for (int position = 0; (t = p.nextToken()) != JsonToken.END_OBJECT && t != JsonToken.END_ARRAY; position++) {
+            String name = t == JsonToken.FIELD_NAME ? p.getCurrentName() : null;
+            int matching = 0;
+            for (int i = 0; i < nested; i++) {
+                if(name != null ? nestedTails[i].matchesProperty(name) : nestedTails[i].matchesElement(position)){
+                    childTails[matching] = nestedTails[i].tail();
+                    childSlots[matching++] = nestedSlots[i];
+                }
+            }
+            if(name != null){
+                p.nextToken();
+            }
+            if(matching == 0){
+                p.skipChildren();
+            } else {
+                _indexValue(p, childTails.clone(), childSlots.clone(), matching, entry);
+            }
+        }
+    }
+
+    private void _add(long[] entry){
+        final int stride = entry.length;
+        if((size + 1) * stride > entries.length){
+            entries = Arrays.copyOf(entries, entries.length << 1);
+        }
+        System.arraycopy(entry, 0, entries, size * stride, stride);
+        size++;
+    }
+
+    /**
+     * @return number of indexed records
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return length of the archive covered by the index
+     */
+    public long getIndexedLength(){
+        return indexedLength;
+    }
+
+    public List<JsonPointer> getPaths(){
+        return Collections.unmodifiableList(Arrays.asList(paths));
+    }
+
+    /**
+     * @return file offset of the record
+     */
+    public long getRecordOffset(int record){
+        return entries[_check(record) * (1 + paths.length)];
+    }
+
+    /**
+     * @param path position of the path in {@link #getPaths()}
+     * @return file offset of the value at the path in the record, -1 if the record doesn't have it
+     */
+    public long getPathOffset(int record, int path){
+        if(path < 0 || path >= paths.length){
+            throw new IndexOutOfBoundsException("no path " + path + " in index of " + paths.length + " paths");
+        }
+        return entries[_check(record) * (1 + paths.length) + 1 + path];
+    }
+
+    /**
+     * @return parser positioned at the start of the record; the parser continues with the following records when
+     * read past its end
+     */
+    public BEncodeMappedParser openRecord(int record) throws IOException{
+        return factory.createMappedParser(archive, getRecordOffset(record));
+    }
+
+    /**
+     * @return parser positioned at the value at the path in the record, null if the record doesn't have it
+     */
+    public BEncodeMappedParser openPath(int record, int path) throws IOException{
+        long offset = getPathOffset(record, path);
+        return offset < 0 ? null : factory.createMappedParser(archive, offset);
+    }
+
+    private int _check(int record){
+        if(record < 0 || record >= size){
+            throw new IndexOutOfBoundsException("no record " + record + " in index of " + size + " records");
+        }
+        return record;
+    }
+}
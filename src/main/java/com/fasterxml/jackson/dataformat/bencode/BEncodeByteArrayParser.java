@@ -0,0 +1,251 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.DICTIONARY_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.INTEGER_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LIST_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+
+/**
+ * Parser working directly on an in-memory byte array. Strings and keys are kept as offset/length slices of the
+ * caller's array, and only copied or decoded when their value is actually requested.
+ */
+public class BEncodeByteArrayParser extends BEncodeParserBase {
+
+    private byte[] inputBuffer;
+
+    /** slice of the current string, key or integer token within {@link #inputBuffer} */
+    private int tokenStart, tokenLen;
+
+    private int digestStart;
+
+    protected BEncodeByteArrayParser(byte[] data, int offset, int len, IOContext ctx, ByteQuadsCanonicalizer symbols){
+        super(ctx, symbols);
+        inputBuffer = data;
+        _inputPtr = offset;
+        _inputEnd = offset + len;
+        // reported locations are relative to the start of the content
+        _currInputProcessed = -offset;
+    }
+
+    /**
+     * Starts over on another input, for example the next datagram of a stream of messages, reusing this parser
+     * (its symbol table and buffers) instead of creating a new one per message. May be called at any point, also
+     * after the parser closed itself at the end of the previous input.
+     */
+    public void reset(byte[] data, int offset, int len){
+        _resetDocument();
+        inputBuffer = data;
+        _inputPtr = offset;
+        _inputEnd = offset + len;
+        _currInputProcessed = -offset;
+        tokenStart = tokenLen = 0;
+    }
+
+    @Override
+    protected void _closeInput() throws IOException{
+        // caller owns the array, nothing to release
+    }
+
+    @Override
+    protected JsonToken _nextToken() throws IOException{
+        _resetToken();
+        if(_inputPtr >= _inputEnd){
+            if(depth != 0){
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+            close();
+            return _currToken = null;
+        }
+        _tokenInputTotal = _currInputProcessed + _inputPtr;
+        final byte c = inputBuffer[_inputPtr++];
+        final boolean expectKey = inDictionary() && _currToken != FIELD_NAME;
+        if(c == END_SUFFIX){
+            if(inDictionary() && !expectKey){
+                _reportError("missing value for dictionary key");
+            }
+            return _currToken = popContainer();
+        }
+        if(c >= '0' && c <= '9'){
+            _parseString(c);
+            if(expectKey){
+                currentName = _findName(inputBuffer, tokenStart, tokenLen);
+                return _currToken = FIELD_NAME;
+            }
+            return _currToken = VALUE_STRING;
+        }
+        if(expectKey){
+            _reportUnexpectedChar(c, "expected dictionary key (string)");
+        }
+        switch (c) {
+            case DICTIONARY_PREFIX:
+                pushContainer(true);
+                return _currToken = START_OBJECT;
+            case LIST_PREFIX:
+                pushContainer(false);
+                return _currToken = START_ARRAY;
+            case INTEGER_PREFIX:
+                _parseInteger();
+                return _currToken = VALUE_NUMBER_INT;
+            default:
+                _reportUnexpectedChar(c, "expected a value");
+                return null; // never gets here
+        }
+    }
+
+    /**
+     * Reads the length prefix (first digit already consumed) and records the string as a slice of the input.
+     */
+    private void _parseString(byte first) throws IOException{
+        final byte[] buf = inputBuffer;
+        final long max = _stringLengthLimit();
+        int ptr = _inputPtr;
+        long len = first - '0';
+        byte c;
+        while (true) {
+            if(len > max){
+                _inputPtr = ptr;
+                _reportStringLengthExceeded(len);
+            }
+            if(ptr >= _inputEnd){
+                _inputPtr = ptr;
+                _reportInvalidEOF(": unexpected EOF in string length", VALUE_STRING);
+            }
+            c = buf[ptr++];
+            if(c == STRING_SEPARATOR){
+                break;
+            }
+            if(c < '0' || c > '9'){
+                _inputPtr = ptr;
+                _reportUnexpectedChar(c, "expected digit or ':' in string length");
+            }
+            len = len * 10 + (c - '0');
+        }
+        if(len > _inputEnd - ptr){
+            _inputPtr = _inputEnd;
+            _reportInvalidEOF(": string of " + len + " bytes exceeds end of input", VALUE_STRING);
+        }
+        tokenStart = ptr;
+        tokenLen = (int) len;
+        _inputPtr = ptr + tokenLen;
+    }
+
+    @Override
+    protected boolean _skipContainer() throws IOException{
+        final byte[] buf = inputBuffer;
+        final int end = _inputEnd;
+        int level = 1;
+        byte c;
+        while (level > 0) {
+            if(_inputPtr >= end){
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+            c = buf[_inputPtr++];
+            if(c >= '0' && c <= '9'){
+                // moves the pointer past the string
+                _parseString(c);
+                continue;
+            }
+            switch (c) {
+                case INTEGER_PREFIX:
+                    do {
+                        if(_inputPtr >= end){
+                            _reportInvalidEOF(": unexpected EOF in integer", VALUE_NUMBER_INT);
+                        }
+                    } while (buf[_inputPtr++] != END_SUFFIX);
+                    break;
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    _checkSkipDepth(++level);
+                    break;
+                case END_SUFFIX:
+                    level--;
+                    break;
+                default:
+                    _reportUnexpectedChar(c, "expected a value");
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected ByteBuffer _readRawValue() throws IOException{
+        skipChildren();
+        final int start = (int) (_tokenInputTotal - _currInputProcessed);
+        return ByteBuffer.wrap(inputBuffer, start, _inputPtr - start).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    protected void _digestStart(){
+        digestStart = _inputPtr - 1;
+    }
+
+    @Override
+    protected byte[] _digestEnd(){
+        digest.update(inputBuffer, digestStart, _inputPtr - digestStart);
+        return digest.digest();
+    }
+
+    private void _parseInteger() throws IOException{
+        final byte[] buf = inputBuffer;
+        final int start = _inputPtr;
+        int ptr = start;
+        while (true) {
+            if(ptr >= _inputEnd){
+                _inputPtr = ptr;
+                _reportInvalidEOF(": unexpected EOF in integer", VALUE_NUMBER_INT);
+            }
+            byte c = buf[ptr];
+            if(c == END_SUFFIX){
+                break;
+            }
+            if((c < '0' || c > '9') && (c != '-' || ptr != start)){
+                _inputPtr = ptr;
+                _reportUnexpectedNumberChar(c, "expected digit or 'e'");
+            }
+            ptr++;
+        }
+        tokenStart = start;
+        tokenLen = ptr - start;
+        _inputPtr = ptr + 1;
+        _setIntegerValue(buf, start, tokenLen);
+    }
+
+    @Override
+    protected String _decodeString(){
+        return _decodeValue(inputBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected byte[] _copyString(){
+        return _copyValue(inputBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected InputStream _openString(){
+        return new ByteArrayInputStream(inputBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected int _writeString(OutputStream out) throws IOException{
+        out.write(inputBuffer, tokenStart, tokenLen);
+        return tokenLen;
+    }
+
+    @Override
+    protected String _integerText(){
+        return new String(inputBuffer, tokenStart, tokenLen, LATIN_1);
+    }
+}
@@ -8,7 +8,13 @@ import com.fasterxml.jackson.dataformat.bencode.context.StreamOutputContext;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class BEncodeFactory extends JsonFactory {
     /**
@@ -17,6 +23,21 @@ public class BEncodeFactory extends JsonFactory {
      */
     public final static String FORMAT_NAME_JSON = "BEncode";
 
+    /** whether {@link #createParser(File)} reads files through memory mapping */
+    private boolean mapFileInput;
+
+    private int mappedWindowSize = BEncodeMappedParser.MAX_WINDOW_SIZE;
+
+    private BEncodeReadConstraints readConstraints = BEncodeReadConstraints.defaults();
+
+    /** canonicalizes short string values, null if disabled */
+    private transient BEncodeValueInterner valueInterner;
+
+    /** algorithm of the digest computed while parsing, null if none */
+    private String digestAlgorithm;
+
+    private String[] digestPath;
+
     public BEncodeFactory(){
         this(null);
     }
@@ -27,6 +48,12 @@ public class BEncodeFactory extends JsonFactory {
 
     public BEncodeFactory(BEncodeFactory src, ObjectCodec codec){
         super(src, codec);
+        mapFileInput = src.mapFileInput;
+        mappedWindowSize = src.mappedWindowSize;
+        readConstraints = src.readConstraints;
+        valueInterner = src.valueInterner;
+        digestAlgorithm = src.digestAlgorithm;
+        digestPath = src.digestPath;
     }
 
     @Override
@@ -40,6 +67,122 @@ public class BEncodeFactory extends JsonFactory {
         return new BEncodeFactory(this, _objectCodec);
     }
 
+    /**
+     * @param state whether {@link #createParser(File)} (and so {@code ObjectMapper.readValue(File, ...)}) should
+     *              use a {@link BEncodeMappedParser} instead of reading through an input stream
+     */
+    public BEncodeFactory setMapFileInput(boolean state){
+        mapFileInput = state;
+        return this;
+    }
+
+    public boolean isMapFileInput(){
+        return mapFileInput;
+    }
+
+    /**
+     * @param size largest region mapped at once by {@link BEncodeMappedParser}, files larger than this are mapped
+     *             in consecutive windows
+     */
+    public BEncodeFactory setMappedWindowSize(int size){
+        if(size <= 0){
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        mappedWindowSize = size;
+        return this;
+    }
+
+    public int getMappedWindowSize(){
+        return mappedWindowSize;
+    }
+
+    /**
+     * @param length longest string (or dictionary key) parsers accept, in bytes; longer length prefixes are
+     *               reported as errors before any of the string is read
+     * @see #setReadConstraints(BEncodeReadConstraints)
+     */
+    public BEncodeFactory setMaxStringLength(int length){
+        readConstraints = readConstraints.rebuild().maxStringLength(length).build();
+        return this;
+    }
+
+    public int getMaxStringLength(){
+        return readConstraints.getMaxStringLength();
+    }
+
+    /**
+     * @param constraints limits on the input accepted by parsers created afterwards
+     */
+    public BEncodeFactory setReadConstraints(BEncodeReadConstraints constraints){
+        if(constraints == null){
+            throw new IllegalArgumentException("constraints must not be null");
+        }
+        readConstraints = constraints;
+        return this;
+    }
+
+    public BEncodeReadConstraints getReadConstraints(){
+        return readConstraints;
+    }
+
+    /**
+     * @param interner cache of short string values, shared by the parsers created afterwards, or null to disable;
+     *                 with an interner, byte arrays returned for binary values may be shared and must not be modified
+     */
+    public BEncodeFactory setValueInterner(BEncodeValueInterner interner){
+        valueInterner = interner;
+        return this;
+    }
+
+    public BEncodeValueInterner getValueInterner(){
+        return valueInterner;
+    }
+
+    /**
+     * Same as {@code setDigest(algorithm, "info")}, for the info-hash of torrents: SHA-1 for v1, SHA-256 for v2.
+     */
+    public BEncodeFactory setDigest(String algorithm){
+        return setDigest(algorithm, "info");
+    }
+
+    /**
+     * Makes parsers compute a digest of the list or dictionary at {@code path} while
+     * it's parsed, available from {@link BEncodeParserBase#getDigest()} once it was read.
+     *
+     * @param algorithm {@link MessageDigest} algorithm name, null to disable digests
+     * @param path      keys leading from the root dictionary to the container
+     */
+    public BEncodeFactory setDigest(String algorithm, String... path){
+        if(algorithm != null){
+            try {
+                MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        digestAlgorithm = algorithm;
+        digestPath = path.clone();
+        return this;
+    }
+
+    public String getDigestAlgorithm(){
+        return digestAlgorithm;
+    }
+
+    private <P extends BEncodeParserBase> P _initParser(P parser){
+        readConstraints.applyTo(parser);
+        parser.valueInterner = valueInterner;
+        if(digestAlgorithm != null){
+            try {
+                parser.setDigest(MessageDigest.getInstance(digestAlgorithm), digestPath);
+            } catch (NoSuchAlgorithmException e) {
+                // checked when the algorithm was set
+                throw new IllegalStateException(e);
+            }
+        }
+        return parser;
+    }
+
     @Override
     public Version version(){
         return PackageVersion.VERSION;
@@ -64,6 +207,11 @@ public class BEncodeFactory extends JsonFactory {
 //        }
     }
 
+    @Override
+    public boolean canParseAsync(){
+        return true;
+    }
+
     @Override
     public boolean canUseSchema(FormatSchema schema){
         return super.canUseSchema(schema);
@@ -71,7 +219,10 @@ public class BEncodeFactory extends JsonFactory {
 
     @Override
     public BEncodeGenerator createGenerator(OutputStream out, JsonEncoding enc) throws IOException{
-        return new BEncodeGenerator(0, _objectCodec, new StreamOutputContext(out, Charset.forName(enc.getJavaName()))); // TODO handle features
+        IOContext ctxt = _createContext(_createContentReference(out), false);
+        ctxt.setEncoding(enc);
+        return new BEncodeGenerator(0, _objectCodec,
+                new StreamOutputContext(out, Charset.forName(enc.getJavaName()), ctxt)); // TODO handle features
     }
 
     @Override
@@ -79,6 +230,36 @@ public class BEncodeFactory extends JsonFactory {
         return createGenerator(out, JsonEncoding.UTF8);
     }
 
+    /**
+     * Generator writing into a heap or direct buffer from its position, which is moved past the output on flush and
+     * close. Heap buffers are written in place and a write that doesn't fit throws
+     * {@link java.nio.BufferOverflowException}; direct buffers are written through the generator's buffer, so the
+     * overflow is only thrown once that is flushed: when it is full, or on flush/close. Either way the target's
+     * position is left after the last successful flush.
+     */
+    public BEncodeGenerator createGenerator(ByteBuffer target) throws IOException{
+        return createGenerator(target, false);
+    }
+
+    /**
+     * Same as {@link #createGenerator(ByteBuffer)}; a growable target is replaced by a larger buffer of the same kind
+     * when the output doesn't fit, so the buffer holding the output is {@link BEncodeGenerator#getOutputTarget()}.
+     */
+    public BEncodeGenerator createGenerator(ByteBuffer target, boolean growable) throws IOException{
+        IOContext ctxt = _createContext(_createContentReference(target), false);
+        ctxt.setEncoding(JsonEncoding.UTF8);
+        return new BEncodeGenerator(0, _objectCodec, new StreamOutputContext(target, growable, ctxt));
+    }
+
+    /**
+     * Generator writing to a blocking channel; large binary values are written straight from their arrays.
+     */
+    public BEncodeGenerator createGenerator(WritableByteChannel channel) throws IOException{
+        IOContext ctxt = _createContext(_createContentReference(channel), false);
+        ctxt.setEncoding(JsonEncoding.UTF8);
+        return new BEncodeGenerator(0, _objectCodec, new StreamOutputContext(channel, BEncodeFormat.UTF_8, ctxt));
+    }
+
     @Override
     public BEncodeGenerator createGenerator(Writer out) throws IOException{
         throw new UnsupportedOperationException("BEncode doesn't support writer");
@@ -86,7 +267,8 @@ public class BEncodeFactory extends JsonFactory {
 
     @Override
     public BEncodeGenerator createGenerator(File f, JsonEncoding enc) throws IOException{
-        OutputStream os = new FileOutputStream(f); // , enc.getJavaName())
+        // buffered by the generator's output context
+        OutputStream os = new FileOutputStream(f);
         return createGenerator(os, enc);
     }
 
@@ -97,14 +279,51 @@ public class BEncodeFactory extends JsonFactory {
 
     @Override
     protected JsonParser _createParser(InputStream in, IOContext ctxt) throws IOException{
-        return new BEncodeAltParser(new BufferedInputStream(in), ctxt);
+        return _initParser(new BEncodeAltParser(in, ctxt,
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures)));
     }
 
     @Override
     protected JsonParser _createParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException, JsonParseException{
-        return _createParser(new ByteArrayInputStream(data, offset, len), ctxt);
+        return _initParser(new BEncodeByteArrayParser(data, offset, len, ctxt,
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures)));
     }
 
+    @Override
+    public BEncodeNonBlockingParser createNonBlockingByteArrayParser() throws IOException{
+        return _initParser(new BEncodeNonBlockingParser(_createNonBlockingContext(null),
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures)));
+    }
+
+    @Override
+    public BEncodeNonBlockingParser createNonBlockingByteBufferParser() throws IOException{
+        return _initParser(new BEncodeNonBlockingParser(_createNonBlockingContext(null),
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures)));
+    }
+
+    @Override
+    public JsonParser createParser(File f) throws IOException{
+        return mapFileInput ? createMappedParser(f) : super.createParser(f);
+    }
+
+    public BEncodeMappedParser createMappedParser(File f) throws IOException{
+        return createMappedParser(f, 0L);
+    }
+
+    /**
+     * @param offset file offset of the first byte to parse
+     */
+    public BEncodeMappedParser createMappedParser(File f, long offset) throws IOException{
+        IOContext ctxt = _createContext(_createContentReference(f), true);
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        try {
+            return _initParser(new BEncodeMappedParser(channel, offset, mappedWindowSize, ctxt,
+                    _byteSymbolCanonicalizer.makeChild(_factoryFeatures)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
 
     @Override
     public JsonParser createParser(String content) throws IOException{
@@ -41,7 +41,7 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public Object getOutputTarget() {
-        return null; // TODO implement
+        return outputContext.getOutputTarget();
     }
 
     @Override
@@ -91,12 +91,31 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeFieldName(SerializableString name) throws IOException {
-        writeFieldName(name.getValue());
+        if (!outputContext.isUtf8()) {
+            writeFieldName(name.getValue());
+            return;
+        }
+        keyNext(name.getValue());
+        if (name instanceof BEncodeSerializedName) {
+            outputContext.write(((BEncodeSerializedName) name).asPrefixedUTF8());
+        } else {
+            byte[] bytes = name.asUnquotedUTF8();
+            encodeLength(bytes.length);
+            outputContext.write(bytes);
+        }
     }
 
     @Override
     public void writeString(SerializableString text) throws IOException {
-        writeString(text.getValue());
+        if (!outputContext.isUtf8()) {
+            writeString(text.getValue());
+            return;
+        }
+        valueNext();
+        // encoded once per instance by SerializedString
+        byte[] bytes = text.asUnquotedUTF8();
+        encodeLength(bytes.length);
+        outputContext.write(bytes);
     }
 
     @Override
@@ -187,12 +206,16 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeFieldName(String name) throws IOException {
+        keyNext(name);
+        encodeString(name);
+    }
+
+    private void keyNext(String name) throws JsonGenerationException {
         try {
             ctx.keyNext(name);
         } catch (IOException e) {
             throw new JsonGenerationException(e.getMessage());
         }
-        encodeString(name);
     }
 
     @Override
@@ -207,6 +230,12 @@ public class BEncodeGenerator extends JsonGenerator {
     }
 
     private void encodeString(String text) throws IOException {
+        if (outputContext.isUtf8()) {
+            // measured first, then encoded straight into the output buffer
+            encodeLength(StreamOutputContext.utf8Length(text));
+            outputContext.writeUtf8(text);
+            return;
+        }
         byte[] bytes = text.getBytes(outputContext.getCharset());
         encodeLength(bytes.length);
         outputContext.write(bytes);
@@ -214,7 +243,13 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeString(char[] text, int offset, int len) throws IOException {
-        writeString(String.valueOf(text, offset, len));
+        if (!outputContext.isUtf8()) {
+            writeString(String.valueOf(text, offset, len));
+            return;
+        }
+        valueNext();
+        encodeLength(StreamOutputContext.utf8Length(text, offset, len));
+        outputContext.writeUtf8(text, offset, len);
     }
 
     @Override
@@ -284,7 +319,7 @@ public class BEncodeGenerator extends JsonGenerator {
     public void writeNumber(BigInteger v) throws IOException {
         valueNext();
         outputContext.write(INTEGER_PREFIX);
-        outputContext.write(v.toString());
+        outputContext.write(v);
         outputContext.write(END_SUFFIX);
     }
 
@@ -0,0 +1,526 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.ContentReference;
+import com.fasterxml.jackson.dataformat.bencode.context.NumberContext;
+
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.DICTIONARY_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.INTEGER_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LIST_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.UTF_8;
+
+/**
+ * Structural index ("tape") of a bencoded document, built in a single pass: the type, start and end offset of every
+ * value, in document order. Values are addressed by their node number (the root is node 0) and only decoded when
+ * accessed, so reading a few fields of a large document doesn't pay for parsing all of it.
+ * <pre>
+ * BEncodeIndex index = BEncodeIndex.build(bytes);
+ * int info = index.getValue(BEncodeIndex.ROOT, "info");
+ * long pieceLength = index.getLong(index.getValue(info, "piece length"));
+ * </pre>
+ * Dictionary lookups use binary search, since keys are sorted by the format (dictionaries with unsorted keys are
+ * detected while building and searched linearly).
+ */
+public final class BEncodeIndex {
+
+    public static final int ROOT = 0;
+
+    private static final byte TYPE_STRING = 's';
+
+    private static final byte TYPE_INTEGER = INTEGER_PREFIX;
+
+    private static final byte TYPE_LIST = LIST_PREFIX;
+
+    private static final byte TYPE_DICTIONARY = DICTIONARY_PREFIX;
+
+    /** dictionary whose keys are not in sorted order */
+    private static final byte TYPE_UNSORTED_DICTIONARY = 'D';
+
+    private final ByteBuffer data;
+
+    private int size;
+
+    private byte[] types;
+
+    /** offset of the first byte of each value (its prefix) */
+    private int[] starts;
+
+    /** offset after the last byte of each value */
+    private int[] ends;
+
+    /** node following the subtree of each value */
+    private int[] skips;
+
+    /** offset of the content for strings and integers, position of the first child in {@link #children} for lists and dictionaries */
+    private int[] payloads;
+
+    /** number of elements of lists, twice the number of entries for dictionaries */
+    private int[] counts;
+
+    /** children of all lists and dictionaries, each container's children are stored consecutively */
+    private int[] children;
+
+    private BEncodeIndex(ByteBuffer data, int capacity){
+        this.data = data;
+        types = new byte[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        skips = new int[capacity];
+        payloads = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public static BEncodeIndex build(byte[] data) throws JsonParseException{
+        return build(ByteBuffer.wrap(data));
+    }
+
+    public static BEncodeIndex build(byte[] data, int offset, int len) throws JsonParseException{
+        return build(ByteBuffer.wrap(data, offset, len).slice());
+    }
+
+    /**
+     * Indexes the remaining bytes of {@code data}, which must hold exactly one value. Offsets are relative to the
+     * buffer's position; the buffer itself is not modified and must not be changed while the index is in use.
+     */
+    public static BEncodeIndex build(ByteBuffer data) throws JsonParseException{
+        ByteBuffer view = data.slice();
+        // roughly one value per 8 bytes for typical torrents and tracker responses
+        BEncodeIndex index = new BEncodeIndex(view, Math.max(16, Math.min(view.remaining() >> 3, 1 << 20)));
+        index._build();
+        index._linkChildren();
+        return index;
+    }
+
+    private void _build() throws JsonParseException{
+        final ByteBuffer buf = data;
+        final int end = buf.limit();
+        int[] open = new int[16];
+        // last key read in each open dictionary, to check their order
+        int[] lastKeys = new int[16];
+        int depth = 0;
+        int ptr = 0;
+        while (true) {
+            if(ptr >= end){
+                _fail(size == 0 ? "no content" : "unexpected EOF", ptr);
+            }
+            byte c = buf.get(ptr);
+            if(c == END_SUFFIX){
+                if(depth == 0){
+                    _fail("unexpected end marker outside of any list or dictionary", ptr);
+                }
+                int node = open[--depth];
+                if(types[node] != TYPE_LIST && (counts[node] & 1) != 0){
+                    _fail("missing value for dictionary key", ptr);
+                }
+                ends[node] = ++ptr;
+                skips[node] = size;
+                if(depth == 0){
+                    break;
+                }
+                continue;
+            }
+            if(size == types.length){
+                _grow();
+            }
+            final int node = size++;
+            starts[node] = ptr;
+            final int parent = depth > 0 ? open[depth - 1] : -1;
+            final boolean key = parent >= 0 && types[parent] != TYPE_LIST && (counts[parent] & 1) == 0;
+            if(parent >= 0){
+                counts[parent]++;
+            }
+            if(c >= '0' && c <= '9'){
+                long len = c - '0';
+                while (true) {
+                    if(++ptr >= end){
+                        _fail("unexpected EOF in string length", ptr);
+                    }
+                    c = buf.get(ptr);
+                    if(c == STRING_SEPARATOR){
+                        break;
+                    }
+                    if(c < '0' || c > '9'){
+                        _fail("expected digit or ':' in string length", ptr);
+                    }
+                    len = len * 10 + (c - '0');
+                    if(len > Integer.MAX_VALUE){
+                        _fail("string length exceeds maximum supported size", ptr);
+                    }
+                }
+                ptr++;
+                if(len > end - ptr){
+                    _fail("string of " + len + " bytes exceeds end of input", ptr);
+                }
+                types[node] = TYPE_STRING;
+                payloads[node] = ptr;
+                ptr += (int) len;
+                ends[node] = ptr;
+                skips[node] = size;
+                if(key){
+                    if(counts[parent] > 1 && types[parent] == TYPE_DICTIONARY
+                            && _compareKeys(lastKeys[depth - 1], node) >= 0){
+                        types[parent] = TYPE_UNSORTED_DICTIONARY;
+                    }
+                    lastKeys[depth - 1] = node;
+                }
+            } else if(key){
+                _fail("expected dictionary key (string)", ptr);
+            } else if(c == INTEGER_PREFIX){
+                final int digits = ++ptr;
+                while (true) {
+                    if(ptr >= end){
+                        _fail("unexpected EOF in integer", ptr);
+                    }
+                    c = buf.get(ptr);
+                    if(c == END_SUFFIX){
+                        break;
+                    }
+                    if((c < '0' || c > '9') && (c != '-' || ptr != digits)){
+                        _fail("expected digit or 'e'", ptr);
+                    }
+                    ptr++;
+                }
+                if(ptr == digits || ptr == digits + 1 && buf.get(digits) == '-'){
+                    _fail("expected digit", ptr);
+                }
+                types[node] = TYPE_INTEGER;
+                payloads[node] = digits;
+                ends[node] = ++ptr;
+                skips[node] = size;
+            } else if(c == LIST_PREFIX || c == DICTIONARY_PREFIX){
+                types[node] = c;
+                if(depth == open.length){
+                    open = Arrays.copyOf(open, depth << 1);
+                    lastKeys = Arrays.copyOf(lastKeys, depth << 1);
+                }
+                open[depth++] = node;
+                ptr++;
+                continue;
+            } else {
+                _fail("expected a value", ptr);
+            }
+            if(depth == 0){
+                break;
+            }
+        }
+        if(ptr != end){
+            _fail("unexpected data after the end of the value", ptr);
+        }
+    }
+
+    private void _linkChildren(){
+        int total = 0;
+        for (int node = 0; node < size; node++) {
+            if(types[node] != TYPE_STRING && types[node] != TYPE_INTEGER){
+                total += counts[node];
+            }
+        }
+        children = new int[total];
+        int pos = 0;
+        for (int node = 0; node < size; node++) {
+            if(types[node] == TYPE_STRING || types[node] == TYPE_INTEGER){
+                continue;
+            }
+            payloads[node] = pos;
+            for (int child = node + 1, end = skips[node]; child < end; child = skips[child]) {
+                children[pos++] = child;
+            }
+        }
+    }
+
+    private void _grow(){
+        int capacity = types.length << 1;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        skips = Arrays.copyOf(skips, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    private void _fail(String message, int offset) throws JsonParseException{
+        throw new JsonParseException(null, message,
+                new JsonLocation(ContentReference.unknown(), offset, -1L, -1, -1));
+    }
+
+    /**
+     * @return number of values in the document
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return {@link JsonToken#VALUE_STRING}, {@link JsonToken#VALUE_NUMBER_INT}, {@link JsonToken#START_ARRAY} for
+     * lists or {@link JsonToken#START_OBJECT} for dictionaries
+     */
+    public JsonToken getType(int node){
+        switch (types[_check(node)]) {
+            case TYPE_STRING:
+                return JsonToken.VALUE_STRING;
+            case TYPE_INTEGER:
+                return JsonToken.VALUE_NUMBER_INT;
+            case TYPE_LIST:
+                return JsonToken.START_ARRAY;
+            default:
+                return JsonToken.START_OBJECT;
+        }
+    }
+
+    /**
+     * @return offset of the first byte of the value
+     */
+    public int getStart(int node){
+        return starts[_check(node)];
+    }
+
+    /**
+     * @return offset after the last byte of the value
+     */
+    public int getEnd(int node){
+        return ends[_check(node)];
+    }
+
+    /**
+     * @return number of elements of a list, or entries of a dictionary
+     */
+    public int getChildCount(int node){
+        _checkContainer(node);
+        return types[node] == TYPE_LIST ? counts[node] : counts[node] >> 1;
+    }
+
+    /**
+     * @return node of the list element at {@code position}, -1 if there is none
+     */
+    public int getElement(int list, int position){
+        _checkType(list, TYPE_LIST);
+        return position >= 0 && position < counts[list] ? children[payloads[list] + position] : -1;
+    }
+
+    /**
+     * @return node of the key of the dictionary entry at {@code position}, -1 if there is none
+     */
+    public int getKey(int dictionary, int position){
+        _checkDictionary(dictionary);
+        return position >= 0 && position < counts[dictionary] >> 1 ? children[payloads[dictionary] + (position << 1)] : -1;
+    }
+
+    /**
+     * @return node of the value for {@code key}, -1 if the dictionary doesn't contain it
+     */
+    public int getValue(int dictionary, String key){
+        _checkDictionary(dictionary);
+        final byte[] target = key.getBytes(UTF_8);
+        final int first = payloads[dictionary];
+        final int entries = counts[dictionary] >> 1;
+        if(types[dictionary] == TYPE_UNSORTED_DICTIONARY){
+            for (int i = 0; i < entries; i++) {
+                if(_compareKey(children[first + (i << 1)], target) == 0){
+                    return children[first + (i << 1) + 1];
+                }
+            }
+            return -1;
+        }
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = _compareKey(children[first + (mid << 1)], target);
+            if(cmp < 0){
+                low = mid + 1;
+            } else if(cmp > 0){
+                high = mid - 1;
+            } else {
+                return children[first + (mid << 1) + 1];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Follows a pointer from the root, using its segments as dictionary keys or list positions.
+     *
+     * @return node of the value, -1 if there is none
+     */
+    public int at(JsonPointer pointer){
+        int node = ROOT;
+        for (JsonPointer p = pointer; !p.matches(); p = p.tail()) {
+            switch (types[node]) {
+                case TYPE_LIST:
+                    node = getElement(node, p.getMatchingIndex());
+                    break;
+                case TYPE_DICTIONARY:
+                case TYPE_UNSORTED_DICTIONARY:
+                    node = getValue(node, p.getMatchingProperty());
+                    break;
+                default:
+                    return -1;
+            }
+            if(node < 0){
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return the string decoded as UTF-8
+     */
+    public String getString(int node){
+        _checkType(node, TYPE_STRING);
+        final int start = payloads[node];
+        final int len = ends[node] - start;
+        if(data.hasArray()){
+            return new String(data.array(), data.arrayOffset() + start, len, UTF_8);
+        }
+        byte[] bytes = new byte[len];
+        _slice(start, ends[node]).get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * @return a copy of the bytes of the string
+     */
+    public byte[] getBinary(int node){
+        _checkType(node, TYPE_STRING);
+        byte[] bytes = new byte[ends[node] - payloads[node]];
+        _slice(payloads[node], ends[node]).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return read-only view of the bytes of the string
+     */
+    public ByteBuffer getBinaryBuffer(int node){
+        _checkType(node, TYPE_STRING);
+        return _slice(payloads[node], ends[node]);
+    }
+
+    /**
+     * @return read-only view of the encoded value, including its prefix and end marker
+     */
+    public ByteBuffer getRawValue(int node){
+        return _slice(starts[_check(node)], ends[node]);
+    }
+
+    public JsonParser.NumberType getNumberType(int node){
+        _checkType(node, TYPE_INTEGER);
+        final int start = payloads[node];
+        final int end = ends[node] - 1;
+        final boolean negative = data.get(start) == '-';
+        int offset = negative ? start + 1 : start;
+        while (offset < end - 1 && data.get(offset) == '0') {
+            offset++;
+        }
+        byte[] digits = _digits(offset, end);
+        return NumberContext.guessType(digits, 0, digits.length, negative);
+    }
+
+    public long getLong(int node){
+        _checkType(node, TYPE_INTEGER);
+        if(getNumberType(node) == JsonParser.NumberType.BIG_INTEGER){
+            throw new ArithmeticException("integer at node " + node + " is out of range of long");
+        }
+        final int start = payloads[node];
+        final int end = ends[node] - 1;
+        final boolean negative = data.get(start) == '-';
+        byte[] digits = _digits(negative ? start + 1 : start, end);
+        long value = NumberContext.parseDigits(digits, 0, digits.length);
+        return negative ? -value : value;
+    }
+
+    public int getInt(int node){
+        long value = getLong(node);
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE){
+            throw new ArithmeticException("integer at node " + node + " is out of range of int");
+        }
+        return (int) value;
+    }
+
+    public BigInteger getBigInteger(int node){
+        _checkType(node, TYPE_INTEGER);
+        return new BigInteger(new String(_digits(payloads[node], ends[node] - 1), LATIN_1));
+    }
+
+    private byte[] _digits(int start, int end){
+        byte[] digits = new byte[end - start];
+        _slice(start, end).get(digits);
+        return digits;
+    }
+
+    private ByteBuffer _slice(int start, int end){
+        ByteBuffer slice = data.duplicate();
+        // Buffer casts keep the Java 8 method signatures when compiled on newer JDKs
+        ((Buffer) slice).limit(end);
+        ((Buffer) slice).position(start);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Compares a key node with the bytes of a key, as unsigned bytes like the format orders keys.
+     */
+    private int _compareKey(int key, byte[] target){
+        final int start = payloads[key];
+        final int len = ends[key] - start;
+        final int common = Math.min(len, target.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (data.get(start + i) & 0xFF) - (target[i] & 0xFF);
+            if(cmp != 0){
+                return cmp;
+            }
+        }
+        return len - target.length;
+    }
+
+    private int _compareKeys(int key, int other){
+        final int start = payloads[key];
+        final int len = ends[key] - start;
+        final int otherStart = payloads[other];
+        final int otherLen = ends[other] - otherStart;
+        final int common = Math.min(len, otherLen);
+        for (int i = 0; i < common; i++) {
+            int cmp = (data.get(start + i) & 0xFF) - (data.get(otherStart + i) & 0xFF);
+            if(cmp != 0){
+                return cmp;
+            }
+        }
+        return len - otherLen;
+    }
+
+    private int _check(int node){
+        if(node < 0 || node >= size){
+            throw new IndexOutOfBoundsException("no node " + node + " in index of " + size + " values");
+        }
+        return node;
+    }
+
+    private void _checkType(int node, byte type){
+        if(types[_check(node)] != type){
+            throw new IllegalArgumentException("node " + node + " is a " + getType(node) + " value");
+        }
+    }
+
+    private void _checkContainer(int node){
+        if(types[_check(node)] == TYPE_STRING || types[node] == TYPE_INTEGER){
+            throw new IllegalArgumentException("node " + node + " is a " + getType(node) + " value");
+        }
+    }
+
+    private void _checkDictionary(int node){
+        if(types[_check(node)] != TYPE_DICTIONARY && types[node] != TYPE_UNSORTED_DICTIONARY){
+            throw new IllegalArgumentException("node " + node + " is a " + getType(node) + " value");
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.DICTIONARY_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.INTEGER_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LIST_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.UTF_8;
+
+/**
+ * Parser reading a file through memory mapped windows. Files larger than a single mapping (2 GB) are mapped in
+ * consecutive windows; a window is re-mapped at the start of any string that doesn't fit into the current one, so
+ * strings are exposed as slices of the mapped region (see {@link #getBinaryBuffer()}). Positions are tracked as
+ * 64-bit offsets from the start of the file.
+ */
+public class BEncodeMappedParser extends BEncodeParserBase {
+
+    /** largest region a single mapping can cover */
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+
+    private final long fileSize;
+
+    private final int windowSize;
+
+    /**
+     * Current window; {@code _currInputProcessed} is the file offset of its first byte, {@code _inputPtr} and
+     * {@code _inputEnd} are relative to it.
+     */
+    private MappedByteBuffer window;
+
+    /** window holding the current string or key, null if the string was longer than a window */
+    private ByteBuffer tokenWindow;
+
+    private int tokenStart, tokenLen;
+
+    /** file offset of the current string or key */
+    private long tokenPosition;
+
+    /** keys are copied here to be looked up in the symbol table */
+    private byte[] nameBuffer = new byte[64];
+
+    private byte[] numberBuffer = new byte[24];
+
+    private long digestStart;
+
+    private int numberLen;
+
+    protected BEncodeMappedParser(FileChannel channel, long offset, int windowSize, IOContext ctx,
+                                  ByteQuadsCanonicalizer symbols) throws IOException{
+        super(ctx, symbols);
+        if(windowSize <= 0){
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        // nothing mapped yet, first read maps the window at offset
+        _currInputProcessed = offset;
+    }
+
+    @Override
+    protected void _closeInput() throws IOException{
+        window = null;
+        tokenWindow = null;
+        channel.close();
+    }
+
+    /**
+     * Maps the next window starting at the current position.
+     *
+     * @return false if the end of file has been reached
+     */
+    private boolean _loadMore() throws IOException{
+        long position = _currInputProcessed + _inputPtr;
+        if(position >= fileSize || _closed){
+            return false;
+        }
+        _mapWindow(position);
+        return true;
+    }
+
+    private void _mapWindow(long position) throws IOException{
+        int size = (int) Math.min(windowSize, fileSize - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        _currInputProcessed = position;
+        _inputPtr = 0;
+        _inputEnd = size;
+    }
+
+    private byte _nextByte(JsonToken incomplete) throws IOException{
+        if(_inputPtr >= _inputEnd && !_loadMore()){
+            _reportInvalidEOF(": unexpected EOF", incomplete);
+        }
+        return window.get(_inputPtr++);
+    }
+
+    @Override
+    protected JsonToken _nextToken() throws IOException{
+        _resetToken();
+        if(_inputPtr >= _inputEnd && !_loadMore()){
+            if(depth != 0){
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+            close();
+            return _currToken = null;
+        }
+        _tokenInputTotal = _currInputProcessed + _inputPtr;
+        final byte c = window.get(_inputPtr++);
+        final boolean expectKey = inDictionary() && _currToken != FIELD_NAME;
+        if(c == END_SUFFIX){
+            if(inDictionary() && !expectKey){
+                _reportError("missing value for dictionary key");
+            }
+            return _currToken = popContainer();
+        }
+        if(c >= '0' && c <= '9'){
+            _parseString(c);
+            if(expectKey){
+                currentName = _decodeName();
+                return _currToken = FIELD_NAME;
+            }
+            return _currToken = VALUE_STRING;
+        }
+        if(expectKey){
+            _reportUnexpectedChar(c, "expected dictionary key (string)");
+        }
+        switch (c) {
+            case DICTIONARY_PREFIX:
+                pushContainer(true);
+                return _currToken = START_OBJECT;
+            case LIST_PREFIX:
+                pushContainer(false);
+                return _currToken = START_ARRAY;
+            case INTEGER_PREFIX:
+                _parseInteger();
+                return _currToken = VALUE_NUMBER_INT;
+            default:
+                _reportUnexpectedChar(c, "expected a value");
+                return null; // never gets here
+        }
+    }
+
+    private void _parseString(byte first) throws IOException{
+        tokenLen = _parseLength(first);
+        final long position = _currInputProcessed + _inputPtr;
+        tokenPosition = position;
+        if(tokenLen > _inputEnd - _inputPtr){
+            if(tokenLen > windowSize){
+                // can't be sliced, read through the channel on demand
+                tokenWindow = null;
+                _currInputProcessed = position + tokenLen;
+                _inputPtr = _inputEnd = 0;
+                return;
+            }
+            _mapWindow(position);
+        }
+        tokenWindow = window;
+        tokenStart = _inputPtr;
+        _inputPtr += tokenLen;
+    }
+
+    /**
+     * Reads a length prefix (first digit already consumed) and the ':' following it.
+     */
+    private int _parseLength(byte first) throws IOException{
+        final long max = _stringLengthLimit();
+        long len = first - '0';
+        byte c;
+        while (true) {
+            if(len > max){
+                _reportStringLengthExceeded(len);
+            }
+            if((c = _nextByte(VALUE_STRING)) == STRING_SEPARATOR){
+                break;
+            }
+            if(c < '0' || c > '9'){
+                _reportUnexpectedChar(c, "expected digit or ':' in string length");
+            }
+            len = len * 10 + (c - '0');
+        }
+        if(len > fileSize - (_currInputProcessed + _inputPtr)){
+            _reportInvalidEOF(": string of " + len + " bytes exceeds end of input", VALUE_STRING);
+        }
+        return (int) len;
+    }
+
+    @Override
+    protected boolean _skipContainer() throws IOException{
+        int level = 1;
+        byte c;
+        while (level > 0) {
+            c = _nextByte(null);
+            if(c >= '0' && c <= '9'){
+                int len = _parseLength(c);
+                if(len <= _inputEnd - _inputPtr){
+                    _inputPtr += len;
+                } else {
+                    // skipped strings are never mapped, the next read maps the window after them
+                    _currInputProcessed += _inputPtr + len;
+                    _inputPtr = _inputEnd = 0;
+                }
+                continue;
+            }
+            switch (c) {
+                case INTEGER_PREFIX:
+                    //noinspection StatementWithEmptyBody
+                    while (_nextByte(VALUE_NUMBER_INT) != END_SUFFIX) ;
+                    break;
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    _checkSkipDepth(++level);
+                    break;
+                case END_SUFFIX:
+                    level--;
+                    break;
+                default:
+                    _reportUnexpectedChar(c, "expected a value");
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected ByteBuffer _readRawValue() throws IOException{
+        skipChildren();
+        return _region(_tokenInputTotal, _currInputProcessed + _inputPtr);
+    }
+
+    @Override
+    protected void _digestStart(){
+        digestStart = _currInputProcessed + _inputPtr - 1;
+    }
+
+    @Override
+    protected byte[] _digestEnd() throws IOException{
+        digest.update(_region(digestStart, _currInputProcessed + _inputPtr));
+        return digest.digest();
+    }
+
+    /**
+     * @return read-only view of the file from {@code start} to {@code end}
+     */
+    private ByteBuffer _region(long start, long end) throws IOException{
+        if(end - start > MAX_WINDOW_SIZE){
+            _reportError("value of " + (end - start) + " bytes is too large to be mapped");
+        }
+        if(window != null && start >= _currInputProcessed && end <= _currInputProcessed + _inputEnd){
+            ByteBuffer slice = window.duplicate();
+            ((Buffer) slice).limit((int) (end - _currInputProcessed));
+            ((Buffer) slice).position((int) (start - _currInputProcessed));
+            return slice.slice().asReadOnlyBuffer();
+        }
+        // value spans several windows
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).asReadOnlyBuffer();
+    }
+
+    private void _parseInteger() throws IOException{
+        numberLen = 0;
+        byte c;
+        while ((c = _nextByte(VALUE_NUMBER_INT)) != END_SUFFIX) {
+            if((c < '0' || c > '9') && (c != '-' || numberLen != 0)){
+                _reportUnexpectedNumberChar(c, "expected digit or 'e'");
+            }
+            if(numberLen == numberBuffer.length){
+                _checkNumberLength(numberLen + 1);
+                numberBuffer = Arrays.copyOf(numberBuffer, numberLen << 1);
+            }
+            numberBuffer[numberLen++] = c;
+        }
+        _setIntegerValue(numberBuffer, 0, numberLen);
+    }
+
+    private String _decodeName() throws IOException{
+        if(tokenWindow == null){
+            return new String(_copyString(), UTF_8);
+        }
+        return _findName(_bufferToken(), 0, tokenLen);
+    }
+
+    /**
+     * @return {@link #nameBuffer} holding the current string or key of the mapped window, to be looked up in place
+     */
+    private byte[] _bufferToken(){
+        if(nameBuffer.length < tokenLen){
+            nameBuffer = new byte[Math.max(tokenLen, nameBuffer.length << 1)];
+        }
+        ByteBuffer src = tokenWindow.duplicate();
+        ((Buffer) src).position(tokenStart);
+        src.get(nameBuffer, 0, tokenLen);
+        return nameBuffer;
+    }
+
+    /**
+     * @return the current string or key as a read-only slice of the mapped file, or as a buffer wrapping a copy if
+     * it's longer than the window size
+     */
+    public ByteBuffer getBinaryBuffer() throws IOException{
+        _checkBinary();
+        if(tokenWindow == null){
+            return ByteBuffer.wrap(getBinaryValue()).asReadOnlyBuffer();
+        }
+        return _stringSlice().slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    protected String _decodeString() throws IOException{
+        if(_binaryValue != null){
+            return _decodeValue(_binaryValue, 0, _binaryValue.length);
+        }
+        if(valueInterner != null && tokenWindow != null && tokenLen <= valueInterner.getMaxValueLength()){
+            // looked up in place, like keys
+            return valueInterner.internString(_bufferToken(), 0, tokenLen);
+        }
+        return new String(_copyString(), UTF_8);
+    }
+
+    @Override
+    protected byte[] _copyString() throws IOException{
+        if(valueInterner != null && tokenWindow != null && tokenLen <= valueInterner.getMaxValueLength()){
+            return _copyValue(_bufferToken(), 0, tokenLen);
+        }
+        byte[] bytes = new byte[tokenLen];
+        if(tokenWindow != null){
+            ByteBuffer src = tokenWindow.duplicate();
+            ((Buffer) src).position(tokenStart);
+            src.get(bytes);
+            return bytes;
+        }
+        ByteBuffer dst = ByteBuffer.wrap(bytes);
+        long position = tokenPosition;
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position);
+            if(read < 0){
+                _reportInvalidEOF(": file truncated while reading string", VALUE_STRING);
+            }
+            position += read;
+        }
+        return bytes;
+    }
+
+    @Override
+    protected InputStream _openString(){
+        return new StringInputStream(tokenWindow == null ? null : _stringSlice(), tokenPosition, tokenLen);
+    }
+
+    private ByteBuffer _stringSlice(){
+        // Buffer casts keep the Java 8 method signatures when compiled on newer JDKs
+        ByteBuffer slice = tokenWindow.duplicate();
+        ((Buffer) slice).limit(tokenStart + tokenLen);
+        ((Buffer) slice).position(tokenStart);
+        return slice;
+    }
+
+    @Override
+    protected int _writeString(OutputStream out) throws IOException{
+        // lets the channel copy the region, from the page cache where possible
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = tokenPosition;
+        final long end = position + tokenLen;
+        while (position < end) {
+            long written = channel.transferTo(position, end - position, target);
+            if(written <= 0){
+                _reportInvalidEOF(": file truncated while reading string", VALUE_STRING);
+            }
+            position += written;
+        }
+        return tokenLen;
+    }
+
+    @Override
+    protected String _integerText(){
+        return new String(numberBuffer, 0, numberLen, LATIN_1);
+    }
+
+    /**
+     * Stream over a string, reading from its mapped slice or, for strings longer than a window, from the channel.
+     */
+    private final class StringInputStream extends InputStream {
+        private final ByteBuffer slice;
+
+        private long position;
+
+        private int remaining;
+
+        StringInputStream(ByteBuffer slice, long position, int length){
+            this.slice = slice;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException{
+            if(remaining == 0){
+                return -1;
+            }
+            if(slice != null){
+                remaining--;
+                return slice.get() & 0xFF;
+            }
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            if(remaining == 0){
+                return -1;
+            }
+            len = Math.min(len, remaining);
+            if(slice != null){
+                slice.get(b, off, len);
+            } else {
+                len = channel.read(ByteBuffer.wrap(b, off, len), position);
+                if(len < 0){
+                    throw new EOFException("file truncated while reading string");
+                }
+                position += len;
+            }
+            remaining -= len;
+            return len;
+        }
+
+        @Override
+        public long skip(long n){
+            int skipped = (int) Math.max(0, Math.min(n, remaining));
+            if(slice != null){
+                ((Buffer) slice).position(slice.position() + skipped);
+            } else {
+                position += skipped;
+            }
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available(){
+            return remaining;
+        }
+    }
+}
@@ -1,16 +1,184 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.FormatSchema;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public class BEncodeMapper extends ObjectMapper {
 
     public BEncodeMapper() {
-        super(new BEncodeFactory());
+        this(new BEncodeFactory());
+    }
+
+    public BEncodeMapper(BEncodeFactory factory) {
+        super(factory);
         enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY);
         enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
         setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        // bean property keys are encoded once per serializer
+        setSerializerFactory(getSerializerFactory().withSerializerModifier(new BEncodePropertyWriter.Modifier()));
+    }
+
+    /**
+     * Deserializes the elements of a root-level list concurrently in the common {@link ForkJoinPool}.
+     *
+     * @see #streamList(byte[], Class)
+     */
+    public <T> List<T> readListInParallel(byte[] data, Class<T> elementType) throws IOException {
+        return readListInParallel(data, elementType, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @return elements in list order
+     */
+    public <T> List<T> readListInParallel(byte[] data, Class<T> elementType, ForkJoinPool pool) throws IOException {
+        return _collect(streamList(data, elementType), pool);
+    }
+
+    public <T> List<T> readListInParallel(File file, Class<T> elementType, ForkJoinPool pool) throws IOException {
+        return _collect(streamList(file, elementType), pool);
+    }
+
+    /**
+     * Splits a root-level list into its elements with a single scan, skipping over each element by its length
+     * prefixes, and returns a parallel stream binding each element to {@code elementType}. Ranges of elements are
+     * bound with a parser each, so elements are deserialized concurrently. I/O errors while binding are thrown as
+     * {@link UncheckedIOException}. A stream not consumed completely (e.g. by {@code findFirst()}) should be closed to
+     * release the parsers it left open.
+     */
+    public <T> Stream<T> streamList(byte[] data, Class<T> elementType) throws IOException {
+        return _stream(ListElementSpliterator.<T>over(_bencodeFactory(), readerFor(elementType), data));
+    }
+
+    /**
+     * Same as {@link #streamList(byte[], Class)}, over a memory mapped file.
+     */
+    public <T> Stream<T> streamList(File file, Class<T> elementType) throws IOException {
+        return _stream(ListElementSpliterator.<T>over(_bencodeFactory(), readerFor(elementType), file));
+    }
+
+    private static <T> Stream<T> _stream(ListElementSpliterator<T> spliterator) {
+        return StreamSupport.stream(spliterator, true).onClose(() -> {
+            try {
+                spliterator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Decodes many small documents (e.g. DHT messages) concurrently, with one worker per available processor on the
+     * common {@link ForkJoinPool}.
+     *
+     * @see #readBatch(Collection, Class, Executor, int)
+     */
+    public <T> List<T> readBatch(Collection<byte[]> payloads, Class<T> valueType) throws IOException {
+        return readBatch(payloads, valueType, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Decodes many small documents concurrently. At most {@code concurrency} workers run on {@code executor} (for
+     * example {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21), each reusing one parser for all the
+     * documents it decodes.
+     *
+     * @return decoded values, in the order of the payloads
+     */
+    public <T> List<T> readBatch(Collection<byte[]> payloads, Class<T> valueType, Executor executor, int concurrency)
+            throws IOException {
+        return BatchCodec.read(_bencodeFactory(), readerFor(valueType), payloads.toArray(), executor, concurrency);
+    }
+
+    /**
+     * Same as {@link #readBatch(Collection, Class, Executor, int)}, for the remaining bytes of each buffer; the
+     * buffers' positions are not changed.
+     */
+    public <T> List<T> readBufferBatch(Collection<ByteBuffer> payloads, Class<T> valueType, Executor executor,
+                                       int concurrency) throws IOException {
+        return BatchCodec.read(_bencodeFactory(), readerFor(valueType), payloads.toArray(), executor, concurrency);
+    }
+
+    public List<byte[]> writeBatch(Collection<?> values) throws IOException {
+        return writeBatch(values, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Encodes many values concurrently, the mirror of {@link #readBatch(Collection, Class, Executor, int)}: each
+     * worker reuses one generator and output buffer for all the values it encodes.
+     *
+     * @return encoded values, in the order of {@code values}
+     */
+    public List<byte[]> writeBatch(Collection<?> values, Executor executor, int concurrency) throws IOException {
+        return BatchCodec.write(_bencodeFactory(), writer(), values.toArray(), executor, concurrency);
+    }
+
+    /**
+     * @return heap or direct buffer holding the encoded value, flipped for reading
+     */
+    public ByteBuffer writeValueAsByteBuffer(Object value, boolean direct) throws IOException {
+        BEncodeGenerator g = _bencodeFactory().createGenerator(
+                direct ? ByteBuffer.allocateDirect(256) : ByteBuffer.allocate(256), true);
+        _writeValueAndClose(g, value);
+        ByteBuffer buffer = (ByteBuffer) g.getOutputTarget();
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    private BEncodeFactory _bencodeFactory() {
+        return (BEncodeFactory) getFactory();
+    }
+
+    private static <T> List<T> _collect(Stream<T> stream, ForkJoinPool pool) throws IOException {
+        try (Stream<T> s = stream) {
+            // a parallel stream runs its tasks in the pool it was started from
+            return pool.submit(() -> s.collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading list");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    protected ObjectReader _newReader(DeserializationConfig config) {
+        return new BEncodeObjectReader(this, config);
+    }
+
+    @Override
+    protected ObjectReader _newReader(DeserializationConfig config, JavaType valueType, Object valueToUpdate,
+                                      FormatSchema schema, InjectableValues injectableValues) {
+        return new BEncodeObjectReader(this, config, valueType, valueToUpdate, schema, injectableValues);
     }
 }
@@ -0,0 +1,484 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.async.NonBlockingInputFeeder;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.DICTIONARY_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.INTEGER_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LIST_PREFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+
+/**
+ * Non-blocking parser; input is pushed in chunks through {@link ByteArrayFeeder} or {@link ByteBufferFeeder}, and
+ * {@link JsonToken#NOT_AVAILABLE} is returned whenever a token can't be completed from the input fed so far.
+ * Length prefixes, integers and strings may be split at any chunk boundary; only the bytes of a value which spans
+ * chunks are copied, everything else is read straight from the fed chunk.
+ */
+public class BEncodeNonBlockingParser extends BEncodeParserBase implements ByteArrayFeeder, ByteBufferFeeder {
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    // where to continue when more input arrives
+    private static final int STATE_TOKEN = 0;
+    private static final int STATE_STRING_LENGTH = 1;
+    private static final int STATE_STRING_BODY = 2;
+    private static final int STATE_INTEGER = 3;
+
+    private byte[] inputBuffer = NO_BYTES;
+
+    /** reused for chunks fed through direct buffers */
+    private byte[] copyBuffer = NO_BYTES;
+
+    private boolean endOfInput;
+
+    private int state = STATE_TOKEN;
+
+    /** declared length of the string being read */
+    private long pendingLength;
+
+    /** whether the string being read is a dictionary key */
+    private boolean pendingKey;
+
+    /** bytes of an integer or string split between chunks */
+    private byte[] partial = NO_BYTES;
+
+    private int partialLen;
+
+    /** a key was read in the current dictionary, its value is expected next */
+    private boolean afterKey;
+
+    /** slice holding the current string, key or integer token */
+    private byte[] tokenBuffer = NO_BYTES;
+
+    private int tokenStart, tokenLen;
+
+    /** whether the digested container is being read */
+    private boolean digesting;
+
+    /** start of the bytes of the current chunk not yet fed into the digest */
+    private int digestFrom;
+
+    /** depth of the container being skipped while input is fed, 0 if none */
+    private int skipDepth;
+
+    protected BEncodeNonBlockingParser(IOContext ctx, ByteQuadsCanonicalizer symbols){
+        super(ctx, symbols);
+    }
+
+    @Override
+    protected void _closeInput() throws IOException{
+        inputBuffer = NO_BYTES;
+        _inputPtr = _inputEnd = 0;
+    }
+
+    @Override
+    public boolean canParseAsync(){
+        return true;
+    }
+
+    @Override
+    public NonBlockingInputFeeder getNonBlockingInputFeeder(){
+        return this;
+    }
+
+    @Override
+    public boolean needMoreInput(){
+        return _inputPtr >= _inputEnd && !endOfInput;
+    }
+
+    @Override
+    public void endOfInput(){
+        endOfInput = true;
+    }
+
+    @Override
+    public void feedInput(byte[] buf, int start, int end) throws IOException{
+        if(_inputPtr < _inputEnd){
+            _reportError("Still have %d undecoded bytes, should not call 'feedInput'", _inputEnd - _inputPtr);
+        }
+        if(end < start){
+            _reportError("Input end (%d) may not be before start (%d)", end, start);
+        }
+        if(endOfInput){
+            _reportError("Already closed, can not feed more input");
+        }
+        // the previous chunk is done with, its digested part has to go in before it's replaced
+        _updateDigest();
+        // keep absolute offsets continuous: position of buf[i] is _currInputProcessed + i
+        _currInputProcessed = _currInputProcessed + _inputPtr - start;
+        inputBuffer = buf;
+        _inputPtr = digestFrom = start;
+        _inputEnd = end;
+    }
+
+    @Override
+    public void feedInput(ByteBuffer buffer) throws IOException{
+        if(buffer.hasArray()){
+            feedInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+            return;
+        }
+        // before the copy overwrites the previous chunk
+        _updateDigest();
+        int len = buffer.remaining();
+        if(copyBuffer.length < len){
+            copyBuffer = new byte[len];
+        }
+        buffer.duplicate().get(copyBuffer, 0, len);
+        feedInput(copyBuffer, 0, len);
+    }
+
+    @Override
+    public int releaseBuffered(OutputStream out) throws IOException{
+        int len = _inputEnd - _inputPtr;
+        if(len > 0){
+            out.write(inputBuffer, _inputPtr, len);
+        }
+        return len;
+    }
+
+    @Override
+    protected JsonToken _nextToken() throws IOException{
+        if(skipDepth > 0){
+            _resetToken();
+            return _currToken = _skipContainer() ? _endSkippedContainer() : NOT_AVAILABLE;
+        }
+        return _readToken();
+    }
+
+    private JsonToken _readToken() throws IOException{
+        _resetToken();
+        if(_closed){
+            return null;
+        }
+        switch (state) {
+            case STATE_STRING_LENGTH:
+                return _currToken = _continueStringLength();
+            case STATE_STRING_BODY:
+                return _currToken = _continueString();
+            case STATE_INTEGER:
+                return _currToken = _continueInteger();
+        }
+        if(_inputPtr >= _inputEnd){
+            if(!endOfInput){
+                return _currToken = NOT_AVAILABLE;
+            }
+            if(depth != 0){
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+            close();
+            return _currToken = null;
+        }
+        _tokenInputTotal = _currInputProcessed + _inputPtr;
+        final byte c = inputBuffer[_inputPtr++];
+        final boolean expectKey = inDictionary() && !afterKey;
+        if(c == END_SUFFIX){
+            if(afterKey){
+                _reportError("missing value for dictionary key");
+            }
+            return _currToken = popContainer();
+        }
+        if(c >= '0' && c <= '9'){
+            pendingKey = expectKey;
+            afterKey = false;
+            pendingLength = c - '0';
+            state = STATE_STRING_LENGTH;
+            return _currToken = _continueStringLength();
+        }
+        if(expectKey){
+            _reportUnexpectedChar(c, "expected dictionary key (string)");
+        }
+        afterKey = false;
+        switch (c) {
+            case DICTIONARY_PREFIX:
+                pushContainer(true);
+                return _currToken = START_OBJECT;
+            case LIST_PREFIX:
+                pushContainer(false);
+                return _currToken = START_ARRAY;
+            case INTEGER_PREFIX:
+                partialLen = 0;
+                state = STATE_INTEGER;
+                return _currToken = _continueInteger();
+            default:
+                _reportUnexpectedChar(c, "expected a value");
+                return null; // never gets here
+        }
+    }
+
+    /**
+     * Skips token by token, as a string or integer may be split between chunks; nested containers are opened and
+     * closed as usual, only the end marker of the skipped one is left to the caller.
+     */
+    @Override
+    protected boolean _skipContainer() throws IOException{
+        if(skipDepth == 0){
+            skipDepth = depth;
+        }
+        while (true) {
+            if(depth == skipDepth && state == STATE_TOKEN && !afterKey && _inputPtr < _inputEnd
+                    && inputBuffer[_inputPtr] == END_SUFFIX){
+                _tokenInputTotal = _currInputProcessed + _inputPtr++;
+                skipDepth = 0;
+                return true;
+            }
+            JsonToken t = _readToken();
+            if(t == NOT_AVAILABLE){
+                return false;
+            }
+            if(t == null){
+                // closed while skipping
+                _reportInvalidEOF(": unexpected EOF", null);
+            }
+        }
+    }
+
+    /**
+     * Feeds the bytes of the current chunk consumed since the last update into the digest.
+     */
+    private void _updateDigest(){
+        if(digesting && _inputPtr > digestFrom){
+            digest.update(inputBuffer, digestFrom, _inputPtr - digestFrom);
+        }
+        digestFrom = _inputPtr;
+    }
+
+    @Override
+    protected void _digestStart(){
+        digest.reset();
+        // prefix has just been consumed from the chunk
+        digestFrom = _inputPtr - 1;
+        digesting = true;
+    }
+
+    @Override
+    protected byte[] _digestEnd(){
+        _updateDigest();
+        digesting = false;
+        return digest.digest();
+    }
+
+    /**
+     * Fed chunks aren't retained once consumed, so a list or dictionary must be complete within the current chunk;
+     * one continuing in input not fed yet is rejected before anything is consumed.
+     */
+    @Override
+    protected ByteBuffer _readRawValue() throws IOException{
+        ByteArrayBuilder raw = new ByteArrayBuilder();
+        switch (_currToken) {
+            case START_OBJECT:
+            case START_ARRAY:
+                final int start = _inputPtr;
+                final int end = _fedContainerEnd();
+                if(end < 0){
+                    _reportError("readRawValue() needs the whole " + (_currToken == START_OBJECT ? "dictionary"
+                            : "list") + " in one chunk, the non-blocking parser can't read it as it's fed");
+                }
+                // validates the contents and keeps the digest and nesting up to date
+                skipChildren();
+                raw.write(containers[depth] ? DICTIONARY_PREFIX : LIST_PREFIX);
+                raw.write(inputBuffer, start, end - start);
+                break;
+            case VALUE_STRING:
+                _writeLength(raw, tokenLen);
+                raw.write(tokenBuffer, tokenStart, tokenLen);
+                break;
+            default:
+                raw.write(INTEGER_PREFIX);
+                raw.write(tokenBuffer, tokenStart, tokenLen);
+                raw.write(END_SUFFIX);
+        }
+        return ByteBuffer.wrap(raw.toByteArray());
+    }
+
+    /**
+     * Scans the current chunk for the end of the current container, without consuming it.
+     *
+     * @return offset following its end marker, -1 if it continues past the chunk
+     */
+    private int _fedContainerEnd(){
+        final byte[] buf = inputBuffer;
+        final int end = _inputEnd;
+        int ptr = _inputPtr;
+        int level = 1;
+        while (ptr < end) {
+            byte c = buf[ptr++];
+            if(c >= '0' && c <= '9'){
+                long len = c - '0';
+                while (ptr < end && (c = buf[ptr]) >= '0' && c <= '9') {
+                    len = len * 10 + (c - '0');
+                    if(len > end - ptr){
+                        return -1;
+                    }
+                    ptr++;
+                }
+                // anything malformed is reported by the skip
+                ptr += (int) len + 1;
+                continue;
+            }
+            switch (c) {
+                case INTEGER_PREFIX:
+                    while (ptr < end && buf[ptr] != END_SUFFIX) {
+                        ptr++;
+                    }
+                    ptr++;
+                    break;
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    level++;
+                    break;
+                case END_SUFFIX:
+                    if(--level == 0){
+                        return ptr;
+                    }
+                    break;
+                default:
+                    // malformed, reported by the skip
+                    return ptr;
+            }
+        }
+        return -1;
+    }
+
+    private JsonToken _needMoreInput(JsonToken incomplete) throws IOException{
+        if(endOfInput){
+            _reportInvalidEOF(": unexpected EOF", incomplete);
+        }
+        return NOT_AVAILABLE;
+    }
+
+    private JsonToken _continueStringLength() throws IOException{
+        final byte[] buf = inputBuffer;
+        while (_inputPtr < _inputEnd) {
+            if(pendingLength > _stringLengthLimit()){
+                _reportStringLengthExceeded(pendingLength);
+            }
+            byte c = buf[_inputPtr++];
+            if(c == STRING_SEPARATOR){
+                partialLen = 0;
+                state = STATE_STRING_BODY;
+                return _continueString();
+            }
+            if(c < '0' || c > '9'){
+                _reportUnexpectedChar(c, "expected digit or ':' in string length");
+            }
+            pendingLength = pendingLength * 10 + (c - '0');
+        }
+        return _needMoreInput(VALUE_STRING);
+    }
+
+    private JsonToken _continueString() throws IOException{
+        final int len = (int) pendingLength;
+        final int avail = _inputEnd - _inputPtr;
+        if(partialLen == 0 && avail >= len){
+            // common case, the whole string is within the current chunk
+            tokenBuffer = inputBuffer;
+            tokenStart = _inputPtr;
+            tokenLen = len;
+            _inputPtr += len;
+        } else {
+            int n = Math.min(len - partialLen, avail);
+            appendPartial(n, len);
+            if(partialLen < len){
+                return _needMoreInput(VALUE_STRING);
+            }
+            tokenBuffer = partial;
+            tokenStart = 0;
+            tokenLen = len;
+        }
+        state = STATE_TOKEN;
+        if(pendingKey){
+            afterKey = true;
+            currentName = _findName(tokenBuffer, tokenStart, tokenLen);
+            return FIELD_NAME;
+        }
+        return VALUE_STRING;
+    }
+
+    private JsonToken _continueInteger() throws IOException{
+        final byte[] buf = inputBuffer;
+        int ptr = _inputPtr;
+        while (ptr < _inputEnd) {
+            byte c = buf[ptr];
+            if(c == END_SUFFIX){
+                if(partialLen == 0){
+                    tokenBuffer = buf;
+                    tokenStart = _inputPtr;
+                    tokenLen = ptr - _inputPtr;
+                } else {
+                    appendPartial(ptr - _inputPtr, Integer.MAX_VALUE);
+                    tokenBuffer = partial;
+                    tokenStart = 0;
+                    tokenLen = partialLen;
+                }
+                _setIntegerValue(tokenBuffer, tokenStart, tokenLen);
+                _inputPtr = ptr + 1;
+                state = STATE_TOKEN;
+                return VALUE_NUMBER_INT;
+            }
+            if((c < '0' || c > '9') && (c != '-' || ptr - _inputPtr + partialLen != 0)){
+                _inputPtr = ptr;
+                _reportUnexpectedNumberChar(c, "expected digit or 'e'");
+            }
+            if(ptr - _inputPtr + partialLen >= maxNumberLength){
+                _checkNumberLength(ptr - _inputPtr + partialLen + 1);
+            }
+            ptr++;
+        }
+        appendPartial(ptr - _inputPtr, Integer.MAX_VALUE);
+        return _needMoreInput(VALUE_NUMBER_INT);
+    }
+
+    /**
+     * Moves the next {@code n} bytes of the current chunk to the end of {@link #partial}.
+     */
+    private void appendPartial(int n, int maxSize){
+        int required = partialLen + n;
+        if(partial.length < required){
+            partial = Arrays.copyOf(partial, Math.min(Math.max(required, partial.length << 1), maxSize));
+        }
+        System.arraycopy(inputBuffer, _inputPtr, partial, partialLen, n);
+        partialLen = required;
+        _inputPtr += n;
+    }
+
+    @Override
+    protected String _decodeString(){
+        return _decodeValue(tokenBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected byte[] _copyString(){
+        return _copyValue(tokenBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected InputStream _openString(){
+        return new ByteArrayInputStream(tokenBuffer, tokenStart, tokenLen);
+    }
+
+    @Override
+    protected int _writeString(OutputStream out) throws IOException{
+        out.write(tokenBuffer, tokenStart, tokenLen);
+        return tokenLen;
+    }
+
+    @Override
+    protected String _integerText(){
+        return new String(tokenBuffer, tokenStart, tokenLen, LATIN_1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.FormatSchema;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.DataFormatReaders;
+
+/**
+ * Reader created by {@link BEncodeMapper}; {@link #at(JsonPointer)} filters bencode parsers natively (see
+ * {@link BEncodeParserBase#setPathFilter(boolean, JsonPointer...)}) instead of wrapping them in a
+ * {@link FilteringParserDelegate}, so values outside the path are skipped without being read.
+ */
+public class BEncodeObjectReader extends ObjectReader {
+
+    private static final long serialVersionUID = 1L;
+
+    /** path of the value to read, null to read the root value */
+    protected final JsonPointer filterPath;
+
+    protected BEncodeObjectReader(ObjectMapper mapper, DeserializationConfig config){
+        super(mapper, config);
+        filterPath = null;
+    }
+
+    protected BEncodeObjectReader(ObjectMapper mapper, DeserializationConfig config, JavaType valueType,
+                                  Object valueToUpdate, FormatSchema schema, InjectableValues injectableValues){
+        super(mapper, config, valueType, valueToUpdate, schema, injectableValues);
+        filterPath = null;
+    }
+
+    protected BEncodeObjectReader(BEncodeObjectReader base, DeserializationConfig config, JavaType valueType,
+                                  JsonDeserializer<Object> rootDeser, Object valueToUpdate, FormatSchema schema,
+                                  InjectableValues injectableValues, DataFormatReaders dataFormatReaders){
+        super(base, config, valueType, rootDeser, valueToUpdate, schema, injectableValues, dataFormatReaders);
+        filterPath = base.filterPath;
+    }
+
+    protected BEncodeObjectReader(BEncodeObjectReader base, DeserializationConfig config){
+        super(base, config);
+        filterPath = base.filterPath;
+    }
+
+    protected BEncodeObjectReader(BEncodeObjectReader base, JsonFactory f){
+        super(base, f);
+        filterPath = base.filterPath;
+    }
+
+    protected BEncodeObjectReader(BEncodeObjectReader base, JsonPointer filterPath){
+        super(base, base._config);
+        this.filterPath = filterPath;
+    }
+
+    @Override
+    protected ObjectReader _new(ObjectReader base, JsonFactory f){
+        return new BEncodeObjectReader((BEncodeObjectReader) base, f);
+    }
+
+    @Override
+    protected ObjectReader _new(ObjectReader base, DeserializationConfig config){
+        return new BEncodeObjectReader((BEncodeObjectReader) base, config);
+    }
+
+    @Override
+    protected ObjectReader _new(ObjectReader base, DeserializationConfig config, JavaType valueType,
+                                JsonDeserializer<Object> rootDeser, Object valueToUpdate, FormatSchema schema,
+                                InjectableValues injectableValues, DataFormatReaders dataFormatReaders){
+        return new BEncodeObjectReader((BEncodeObjectReader) base, config, valueType, rootDeser, valueToUpdate,
+                schema, injectableValues, dataFormatReaders);
+    }
+
+    @Override
+    public ObjectReader at(String pointerExpr){
+        _assertNotNull("pointerExpr", pointerExpr);
+        return at(JsonPointer.compile(pointerExpr));
+    }
+
+    @Override
+    public ObjectReader at(JsonPointer pointer){
+        _assertNotNull("pointer", pointer);
+        return new BEncodeObjectReader(this, pointer);
+    }
+
+    @Override
+    protected JsonParser _considerFilter(JsonParser p, boolean multiValue){
+        if(filterPath == null){
+            return super._considerFilter(p, multiValue);
+        }
+        if(p instanceof BEncodeParserBase){
+            ((BEncodeParserBase) p).setPathFilter(multiValue, filterPath);
+            return p;
+        }
+        return new FilteringParserDelegate(p, new JsonPointerBasedFilter(filterPath),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, multiValue);
+    }
+}
@@ -0,0 +1,786 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.base.ParserBase;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+import com.fasterxml.jackson.dataformat.bencode.context.NumberContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.END_SUFFIX;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.LATIN_1;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.UTF_8;
+
+/**
+ * Token bookkeeping shared by the BEncode parsers: container nesting, dictionary keys canonicalized through a
+ * {@link ByteQuadsCanonicalizer} shared with the factory, lazily decoded token text and byte offset based locations.
+ */
+public abstract class BEncodeParserBase extends ParserBase {
+
+    /** keys longer than this are decoded without looking them up in the symbol table */
+    protected static final int MAX_CANONICAL_NAME_LENGTH = 256;
+
+    protected ObjectCodec codec;
+
+    /** longest string or key accepted, checked against the length prefix before any of it is read */
+    protected int maxStringLength = BEncodeReadConstraints.DEFAULT_MAX_STRING_LENGTH;
+
+    protected int maxNestingDepth = BEncodeReadConstraints.DEFAULT_MAX_DEPTH;
+
+    /** longest integer accepted, in characters including the sign */
+    protected int maxNumberLength = BEncodeReadConstraints.DEFAULT_MAX_NUMBER_LENGTH;
+
+    /** largest root-level value accepted, in bytes */
+    protected long maxDocumentLength = BEncodeReadConstraints.DEFAULT_MAX_DOCUMENT_LENGTH;
+
+    /** offset of the root-level list or dictionary being read */
+    protected long documentStart;
+
+    /** canonicalizes short string values, null if disabled */
+    protected BEncodeValueInterner valueInterner;
+
+    /** child of the factory's root table, merged back when the parser is closed */
+    protected final ByteQuadsCanonicalizer _symbols;
+
+    protected int[] _quadBuffer = new int[16];
+
+    /** last dictionary key read */
+    protected String currentName;
+
+    /** one entry per open container, true for dictionaries */
+    protected boolean[] containers = new boolean[16];
+
+    protected int depth;
+
+    /** decoded text of the current token, if it was requested */
+    protected String tokenText;
+
+    /** offset of the value last returned by {@link #readRawValue()} */
+    protected long rawValueOffset = -1L;
+
+    /** keys leading from the root dictionary to the container to digest, null if disabled */
+    protected String[] digestPath;
+
+    protected MessageDigest digest;
+
+    /** number of open containers, starting from the root, that lie on {@link #digestPath} */
+    protected int digestMatched;
+
+    protected byte[] digestValue;
+
+    /** number of root-level values completely read */
+    protected int documentCount;
+
+    /** paths of the values returned by {@link #nextToken()}, null if not filtering */
+    protected JsonPointer[] filterPaths;
+
+    /** per open container, the remaining parts of the filter paths leading into it */
+    protected JsonPointer[][] filterTails;
+
+    /** per open list, position of the next element */
+    protected int[] filterPositions;
+
+    /** depth of the matched container being returned, -1 if none */
+    protected int filterMatchDepth = -1;
+
+    /** whether filtering stops after the first matching value */
+    protected boolean filterSingle;
+
+    protected boolean filterDone;
+
+    /** remaining parts of the filter paths leading to the value of the current key */
+    private JsonPointer[] filterPending;
+
+    /** the value of the current key leads to no path, it's skipped once read */
+    private boolean filterSkipValue;
+
+    protected BEncodeParserBase(IOContext ctx, ByteQuadsCanonicalizer symbols){
+        super(ctx, 0);
+        _symbols = symbols;
+    }
+
+    @Override
+    public ObjectCodec getCodec(){
+        return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec){
+        this.codec = codec;
+    }
+
+    /**
+     * Clears values cached for the previous token, to be called at the start of each {@link #nextToken()}.
+     */
+    protected final void _resetToken(){
+        tokenText = null;
+        _binaryValue = null;
+        _numTypesValid = NR_UNKNOWN;
+    }
+
+    protected final boolean inDictionary(){
+        return depth > 0 && containers[depth - 1];
+    }
+
+    protected final void pushContainer(boolean dictionary) throws IOException{
+        if(depth >= maxNestingDepth){
+            _reportNestingDepthExceeded();
+        }
+        if(depth == 0){
+            documentStart = _tokenInputTotal;
+        }
+        if(depth == containers.length){
+            containers = Arrays.copyOf(containers, depth << 1);
+        }
+        containers[depth++] = dictionary;
+        if(!_parsingContext.inObject()){
+            _parsingContext.expectComma();
+        }
+        // the child context of each level is reused, so this doesn't allocate once the level was reached before
+        _parsingContext = dictionary ? _parsingContext.createChildObjectContext(-1, -1)
+                : _parsingContext.createChildArrayContext(-1, -1);
+        if(digestPath != null && digestMatched == depth - 1 && _onDigestPath()){
+            if(++digestMatched > digestPath.length){
+                _digestStart();
+            }
+        }
+    }
+
+    protected final JsonToken popContainer() throws IOException{
+        if(depth == 0){
+            _reportError("unexpected end marker outside of any list or dictionary");
+        }
+        if(digestMatched == depth && digestPath != null){
+            if(digestMatched-- > digestPath.length){
+                digestValue = _digestEnd();
+            }
+        }
+        if(--depth == 0){
+            documentCount++;
+        }
+        _parsingContext = _parsingContext.clearAndGetParent();
+        return containers[depth] ? END_OBJECT : END_ARRAY;
+    }
+
+    /**
+     * @return whether the container just opened continues the digest path of its enclosing containers
+     */
+    private boolean _onDigestPath(){
+        final int parent = depth - 2;
+        if(parent < 0){
+            return true;
+        }
+        return parent < digestPath.length && containers[parent] && digestPath[parent].equals(currentName);
+    }
+
+    /**
+     * Makes {@link #nextToken()} return only the values at the given paths, each value as a whole subtree, as
+     * {@code FilteringParserDelegate} would with {@code Inclusion.ONLY_INCLUDE_ALL}. Everything else is skipped by
+     * scanning raw input, like {@link #skipChildren()}, so the cost is close to the size of the matched data. Must be
+     * called before the first token is read. A non-blocking parser returns {@link JsonToken#NOT_AVAILABLE} while a
+     * skipped value is still being fed.
+     *
+     * @param paths paths of the values to return; none to disable filtering
+     */
+    public void setPathFilter(JsonPointer... paths){
+        setPathFilter(true, paths);
+    }
+
+    /**
+     * @param allowMultipleMatches whether to return all matching values or only the first one
+     * @see #setPathFilter(JsonPointer...)
+     */
+    public void setPathFilter(boolean allowMultipleMatches, JsonPointer... paths){
+        if(paths.length == 0){
+            filterPaths = null;
+            return;
+        }
+        filterPaths = paths.clone();
+        filterTails = new JsonPointer[containers.length + 1][];
+        filterPositions = new int[containers.length + 1];
+        filterMatchDepth = -1;
+        filterSingle = !allowMultipleMatches;
+        filterDone = false;
+        filterSkipValue = false;
+    }
+
+    @Override
+    public final JsonToken nextToken() throws IOException{
+        return filterPaths == null ? _nextRootAware() : _nextFiltered();
+    }
+
+    /**
+     * Reads the next token regardless of any path filter, keeping the parsing context and document bookkeeping up
+     * to date.
+     */
+    protected final JsonToken _nextRootAware() throws IOException{
+        JsonToken t = _nextToken();
+        if(t == null){
+            return null;
+        }
+        if(t == FIELD_NAME){
+            _parsingContext.expectComma();
+            _parsingContext.setCurrentName(currentName);
+        } else if(t.isScalarValue() && !_parsingContext.inObject()){
+            _parsingContext.expectComma();
+        }
+        if(depth == 0){
+            if(t.isScalarValue()){
+                documentCount++;
+            } else {
+                _checkDocumentLength(_tokenInputTotal);
+            }
+        } else if(_tokenInputTotal - documentStart >= maxDocumentLength){
+            _reportDocumentLengthExceeded();
+        }
+        return t;
+    }
+
+    /**
+     * Input may hold several root-level values back to back (a capture of messages, an archive of records); the
+     * parser moves from one to the next and only returns null at the end of input. Lists and dictionaries count
+     * once their end marker was read, also when skipped.
+     *
+     * @return number of root-level values read completely so far
+     */
+    public int getDocumentCount(){
+        return documentCount;
+    }
+
+    /**
+     * Clears all state of the current document so the parser can start over on new input, keeping its buffers and
+     * symbol table. Also re-opens a parser closed at the end of its previous input.
+     */
+    protected void _resetDocument(){
+        _resetToken();
+        _currToken = null;
+        _lastClearedToken = null;
+        _closed = false;
+        _tokenInputTotal = 0L;
+        depth = 0;
+        while (!_parsingContext.inRoot()) {
+            _parsingContext = _parsingContext.clearAndGetParent();
+        }
+        _parsingContext.reset(JsonStreamContext.TYPE_ROOT, 1, 0);
+        currentName = null;
+        documentCount = 0;
+        rawValueOffset = -1L;
+        digestMatched = 0;
+        digestValue = null;
+        if(digest != null){
+            digest.reset();
+        }
+        filterMatchDepth = -1;
+        filterDone = false;
+        filterSkipValue = false;
+    }
+
+    /**
+     * Reads the next token from the input, regardless of any path filter.
+     */
+    protected abstract JsonToken _nextToken() throws IOException;
+
+    private JsonToken _nextFiltered() throws IOException{
+        if(filterMatchDepth > depth){
+            // matched container was skipped or read as raw value
+            filterMatchDepth = -1;
+            filterDone = filterSingle;
+        }
+        if(filterDone){
+            return _currToken = null;
+        }
+        while (true) {
+            JsonToken t = _nextRootAware();
+            if(t == null || t == NOT_AVAILABLE){
+                return t;
+            }
+            if(filterSkipValue){
+                filterSkipValue = false;
+                if(skipChildren().currentToken() == NOT_AVAILABLE){
+                    return NOT_AVAILABLE;
+                }
+                continue;
+            }
+            if(filterMatchDepth >= 0){
+                if(depth < filterMatchDepth){
+                    filterMatchDepth = -1;
+                    filterDone = filterSingle;
+                }
+                return t;
+            }
+            JsonPointer[] tails;
+            switch (t) {
+                case FIELD_NAME:
+                    filterPending = _filterChildren(filterTails[depth], currentName, -1);
+                    filterSkipValue = filterPending == null;
+                    continue;
+                case END_OBJECT:
+                case END_ARRAY:
+                    continue;
+                case START_OBJECT:
+                case START_ARRAY:
+                    tails = _filterValueTails(depth - 1);
+                    break;
+                default:
+                    tails = _filterValueTails(depth);
+            }
+            if(tails == null){
+                // list element (or root value) not leading to any path
+                if(skipChildren().currentToken() == NOT_AVAILABLE){
+                    return NOT_AVAILABLE;
+                }
+                continue;
+            }
+            for (JsonPointer tail : tails) {
+                if(tail.matches()){
+                    if(t.isStructStart()){
+                        filterMatchDepth = depth;
+                    } else {
+                        filterDone = filterSingle;
+                    }
+                    return t;
+                }
+            }
+            if(t.isStructStart()){
+                if(depth == filterTails.length){
+                    filterTails = Arrays.copyOf(filterTails, depth << 1);
+                    filterPositions = Arrays.copyOf(filterPositions, depth << 1);
+                }
+                filterTails[depth] = tails;
+                filterPositions[depth] = 0;
+            }
+        }
+    }
+
+    /**
+     * @param parentDepth depth of the container holding the value, 0 for root values
+     * @return remaining parts of the filter paths leading to the value just read, null if there are none
+     */
+    private JsonPointer[] _filterValueTails(int parentDepth){
+        if(parentDepth == 0){
+            return filterPaths;
+        }
+        if(containers[parentDepth - 1]){
+            return filterPending;
+        }
+        return _filterChildren(filterTails[parentDepth], null, filterPositions[parentDepth]++);
+    }
+
+    private static JsonPointer[] _filterChildren(JsonPointer[] tails, String name, int position){
+        JsonPointer[] children = null;
+        int n = 0;
+        for (JsonPointer tail : tails) {
+            if(name != null ? tail.matchesProperty(name) : tail.matchesElement(position)){
+                if(children == null){
+                    children = new JsonPointer[tails.length];
+                }
+                children[n++] = tail.tail();
+            }
+        }
+        return children == null || n == tails.length ? children : Arrays.copyOf(children, n);
+    }
+
+    /**
+     * Feeds the encoded bytes of the list or dictionary at {@code path} into {@code digest} while it is parsed, for
+     * example {@code setDigest(MessageDigest.getInstance("SHA-1"), "info")} for the info-hash of a torrent. Must be
+     * called before the first token is read.
+     *
+     * @param path keys leading from the root dictionary to the container, none to digest the root value itself
+     * @see #getDigest()
+     */
+    public void setDigest(MessageDigest digest, String... path){
+        this.digest = digest;
+        this.digestPath = path;
+    }
+
+    /**
+     * @return digest of the container at the path given to {@link #setDigest(MessageDigest, String...)}, null until
+     * it has been read completely
+     */
+    public byte[] getDigest(){
+        return digestValue;
+    }
+
+    /**
+     * Called when the container to digest starts, its first byte has just been consumed.
+     */
+    protected abstract void _digestStart() throws IOException;
+
+    /**
+     * Called when the container to digest ends, its end marker has just been consumed.
+     *
+     * @return the completed digest
+     */
+    protected abstract byte[] _digestEnd() throws IOException;
+
+    /**
+     * Skips the contents of the current container by scanning raw input: strings are stepped over by their length
+     * prefix, without being read, decoded or looked up. When a non-blocking parser runs out of fed input first, the
+     * current token becomes {@link JsonToken#NOT_AVAILABLE} and the skip continues on the next {@link #nextToken()},
+     * which returns the end token of the container once it's reached.
+     */
+    @Override
+    public JsonParser skipChildren() throws IOException{
+        if(_currToken == START_OBJECT || _currToken == START_ARRAY){
+            _currToken = _skipContainer() ? _endSkippedContainer() : NOT_AVAILABLE;
+        }
+        return this;
+    }
+
+    /**
+     * Consumes the input up to and including the end marker of the current container.
+     *
+     * @return false if non-blocking input ran out before the end marker
+     */
+    protected abstract boolean _skipContainer() throws IOException;
+
+    /**
+     * Closes the container whose end marker was consumed by {@link #_skipContainer()}.
+     *
+     * @return its end token
+     */
+    protected final JsonToken _endSkippedContainer() throws IOException{
+        JsonToken t = popContainer();
+        if(depth == 0){
+            _checkDocumentLength(_currInputProcessed + _inputPtr - 1);
+        }
+        return t;
+    }
+
+    /**
+     * Consumes the current value, the whole subtree for a list or dictionary, and returns its encoded bytes exactly as
+     * they appear in the input (e.g. to hash the {@code info} dictionary of a torrent). Array and file input is
+     * returned as a read-only view without copying, stream and non-blocking input as a copy. A non-blocking parser
+     * rejects a list or dictionary not complete within the chunk fed last, without consuming it. Afterwards the
+     * parser is positioned at the last token of the value, like after {@link #skipChildren()}.
+     *
+     * @see #getRawValueOffset()
+     */
+    public ByteBuffer readRawValue() throws IOException{
+        if(_currToken == null || !(_currToken.isScalarValue() || _currToken.isStructStart())){
+            _reportError("Current token (" + _currToken + ") is not a value, can not access raw bytes");
+        }
+        rawValueOffset = _tokenInputTotal;
+        return _readRawValue();
+    }
+
+    /**
+     * @return byte offset of the value last returned by {@link #readRawValue()}, it ends at this offset plus the
+     * size of that buffer; -1 if none was read yet
+     */
+    public long getRawValueOffset(){
+        return rawValueOffset;
+    }
+
+    protected abstract ByteBuffer _readRawValue() throws IOException;
+
+    /**
+     * Writes a string length prefix for a raw value. The original form of a prefix isn't kept, so non-canonical
+     * prefixes (with leading zeros) come out canonical.
+     */
+    protected static void _writeLength(OutputStream out, int len) throws IOException{
+        String digits = Integer.toString(len);
+        for (int i = 0; i < digits.length(); i++) {
+            out.write(digits.charAt(i));
+        }
+        out.write(STRING_SEPARATOR);
+    }
+
+    /**
+     * @return longest string accepted at the current token: the maximum string length, or less when the rest of
+     * the document may not be as long
+     */
+    protected final long _stringLengthLimit(){
+        long used = depth == 0 ? 0L : _tokenInputTotal - documentStart;
+        return Math.min(maxStringLength, maxDocumentLength - used);
+    }
+
+    protected final void _reportStringLengthExceeded(long len) throws IOException{
+        if(len > maxStringLength){
+            _reportError("string length exceeds maximum of " + maxStringLength + " bytes");
+        }
+        _reportDocumentLengthExceeded();
+    }
+
+    /**
+     * Checks the depth reached while skipping, {@code level} being the number of containers open in the skipped one
+     * (counting itself).
+     */
+    protected final void _checkSkipDepth(int level) throws IOException{
+        if(depth - 1 + level > maxNestingDepth){
+            _reportNestingDepthExceeded();
+        }
+    }
+
+    protected final void _checkNumberLength(int len) throws IOException{
+        if(len > maxNumberLength){
+            _reportError("integer length exceeds maximum of " + maxNumberLength + " characters");
+        }
+    }
+
+    /**
+     * @param end offset of the end marker of the root-level list or dictionary just read
+     */
+    private void _checkDocumentLength(long end) throws IOException{
+        if(end - documentStart >= maxDocumentLength){
+            _reportDocumentLengthExceeded();
+        }
+    }
+
+    private void _reportNestingDepthExceeded() throws IOException{
+        _reportError("nesting depth exceeds maximum of " + maxNestingDepth);
+    }
+
+    private void _reportDocumentLengthExceeded() throws IOException{
+        _reportError("document length exceeds maximum of " + maxDocumentLength + " bytes");
+    }
+
+    @Override
+    protected void _releaseBuffers() throws IOException{
+        super._releaseBuffers();
+        _symbols.release();
+    }
+
+    /**
+     * Decodes a dictionary key, returning the canonical instance if the same key bytes were seen before by this
+     * or (after it was closed) any other parser of the same factory.
+     */
+    protected final String _findName(byte[] buf, int start, int len){
+        if(len == 0){
+            return "";
+        }
+        if(len > MAX_CANONICAL_NAME_LENGTH){
+            return new String(buf, start, len, UTF_8);
+        }
+        final int qlen = (len + 3) >> 2;
+        if(_quadBuffer.length < qlen){
+            _quadBuffer = new int[Math.max(qlen, _quadBuffer.length << 1)];
+        }
+        final int[] quads = _quadBuffer;
+        final int end = start + len;
+        int ptr = start;
+        int i = 0;
+        int q = 0;
+        byte b;
+        while (ptr < end) {
+            b = buf[ptr++];
+            // partial quads are padded with 0xFF, keys containing it can't be told apart that way
+            if(b == (byte) 0xFF){
+                return new String(buf, start, len, UTF_8);
+            }
+            q = (q << 8) | (b & 0xFF);
+            if(((ptr - start) & 3) == 0){
+                quads[i++] = q;
+                q = 0;
+            }
+        }
+        final int lastBytes = len & 3;
+        if(lastBytes != 0){
+            quads[i] = q | (-1 << (lastBytes << 3));
+        }
+        String name = _symbols.findName(quads, qlen);
+        if(name == null){
+            name = _symbols.addName(new String(buf, start, len, UTF_8), quads, qlen);
+        }
+        return name;
+    }
+
+    /**
+     * Decodes a string value, returning the canonical instance if values are interned.
+     */
+    protected final String _decodeValue(byte[] buf, int start, int len){
+        if(valueInterner == null){
+            return new String(buf, start, len, UTF_8);
+        }
+        return valueInterner.internString(buf, start, len);
+    }
+
+    /**
+     * Copies the bytes of the current string, returning the canonical instance if values are interned; keys are
+     * always copied.
+     */
+    protected final byte[] _copyValue(byte[] buf, int start, int len){
+        if(valueInterner == null || _currToken != VALUE_STRING){
+            return Arrays.copyOfRange(buf, start, start + len);
+        }
+        return valueInterner.internBytes(buf, start, len);
+    }
+
+    /**
+     * @return the current string decoded as text
+     */
+    protected abstract String _decodeString() throws IOException;
+
+    /**
+     * @return the current string or key as a new array, or the canonical instance of an interned value
+     */
+    protected abstract byte[] _copyString() throws IOException;
+
+    /**
+     * @return the current string or key as a stream over the input, without copying it first
+     */
+    protected abstract InputStream _openString() throws IOException;
+
+    /**
+     * Writes the current string or key to {@code out}.
+     *
+     * @return number of bytes written
+     */
+    protected abstract int _writeString(OutputStream out) throws IOException;
+
+    /**
+     * @return the current integer as it appeared in the input
+     */
+    protected abstract String _integerText() throws IOException;
+
+    /**
+     * Sets the value of the current integer token from its text (optional sign and digits, without the markers).
+     * Only the smallest type holding the value is set; a {@link BigInteger} is only built when the value is out
+     * of long range.
+     */
+    protected final void _setIntegerValue(byte[] buf, int start, int len) throws IOException{
+        final boolean negative = len > 0 && buf[start] == '-';
+        int offset = negative ? start + 1 : start;
+        final int end = start + len;
+        if(offset == end){
+            _reportUnexpectedNumberChar(END_SUFFIX, "expected digit");
+        }
+        _checkNumberLength(len);
+        _numberNegative = negative;
+        _intLength = end - offset;
+        // leading zeros would throw off the type guess
+        while (buf[offset] == '0' && offset < end - 1) {
+            offset++;
+        }
+        final int digits = end - offset;
+        switch (NumberContext.guessType(buf, offset, digits, negative)) {
+            case INT:
+                int i = (int) NumberContext.parseDigits(buf, offset, digits);
+                _numberInt = negative ? -i : i;
+                _numTypesValid = NR_INT;
+                break;
+            case LONG:
+                long l = NumberContext.parseDigits(buf, offset, digits);
+                _numberLong = negative ? -l : l;
+                _numTypesValid = NR_LONG;
+                break;
+            default:
+                _numberBigInt = new BigInteger(new String(buf, start, len, LATIN_1));
+                _numTypesValid = NR_BIGINT;
+        }
+    }
+
+    @Override
+    public void overrideCurrentName(String name){
+        super.overrideCurrentName(name);
+        if(_currToken == FIELD_NAME){
+            currentName = name;
+        }
+    }
+
+    @Override
+    public String getText() throws IOException{
+        if(_currToken == null || _currToken == NOT_AVAILABLE){
+            return null;
+        }
+        switch (_currToken) {
+            case FIELD_NAME:
+                return currentName;
+            case VALUE_STRING:
+                if(tokenText == null){
+                    tokenText = _decodeString();
+                }
+                return tokenText;
+            case VALUE_NUMBER_INT:
+                if(tokenText == null){
+                    tokenText = _integerText();
+                }
+                return tokenText;
+            default:
+                return _currToken.asString();
+        }
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException{
+        String text = getText();
+        return text == null ? null : text.toCharArray();
+    }
+
+    @Override
+    public int getTextLength() throws IOException{
+        String text = getText();
+        return text == null ? 0 : text.length();
+    }
+
+    @Override
+    public int getTextOffset() throws IOException{
+        return 0;
+    }
+
+    protected final void _checkBinary() throws IOException{
+        if(_currToken != VALUE_STRING && _currToken != FIELD_NAME){
+            _reportError("Current token (" + _currToken + ") not VALUE_STRING, can not access as binary");
+        }
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant variant) throws IOException{
+        _checkBinary();
+        if(_binaryValue == null){
+            _binaryValue = _copyString();
+        }
+        return _binaryValue;
+    }
+
+    /**
+     * Writes the current string to {@code out} without materializing it, so large values (like the pieces of a
+     * torrent) can go straight to their destination.
+     */
+    @Override
+    public int readBinaryValue(Base64Variant variant, OutputStream out) throws IOException{
+        _checkBinary();
+        if(_binaryValue != null){
+            out.write(_binaryValue);
+            return _binaryValue.length;
+        }
+        return _writeString(out);
+    }
+
+    /**
+     * @return the current string (or key) as a stream, valid until the next token is read
+     */
+    public InputStream getBinaryStream() throws IOException{
+        _checkBinary();
+        if(_binaryValue != null){
+            return new ByteArrayInputStream(_binaryValue);
+        }
+        return _openString();
+    }
+
+    @Override
+    public JsonLocation getTokenLocation(){
+        return new JsonLocation(_contentReference(), _tokenInputTotal, -1L, -1, -1);
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation(){
+        return new JsonLocation(_contentReference(), _currInputProcessed + _inputPtr, -1L, -1, -1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import java.util.List;
+
+/**
+ * Property writer whose name is a {@link BEncodeSerializedName}, so the key of each property is encoded once per
+ * serializer rather than once per value written.
+ */
+class BEncodePropertyWriter extends BeanPropertyWriter {
+
+    private static final long serialVersionUID = 1L;
+
+    BEncodePropertyWriter(BeanPropertyWriter base){
+        super(base, new BEncodeSerializedName(base.getName()));
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName){
+        return new BEncodePropertyWriter(super._new(newName));
+    }
+
+    /**
+     * Replaces the plain property writers of bean serializers; specialized writers (unwrapping, virtual, ...) are
+     * kept as they are.
+     */
+    static class Modifier extends BeanSerializerModifier {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                         List<BeanPropertyWriter> beanProperties){
+            for (int i = 0; i < beanProperties.size(); i++) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                if(writer.getClass() == BeanPropertyWriter.class){
+                    beanProperties.set(i, new BEncodePropertyWriter(writer));
+                }
+            }
+            return beanProperties;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import java.io.Serializable;
+
+/**
+ * Limits on input accepted by the parsers of a {@link BEncodeFactory}, to fail fast on hostile input: each is
+ * checked before anything is allocated for the value exceeding it (a length prefix is checked while its digits are
+ * read, nesting when a list or dictionary starts). Strings and documents are unbounded by default, as parsers size
+ * strings by the bytes actually read rather than by their length prefix; set limits for untrusted input.
+ * <pre>
+ * factory.setReadConstraints(BEncodeReadConstraints.builder()
+ *         .maxStringLength(1 &lt;&lt; 20)
+ *         .maxDocumentLength(16 &lt;&lt; 20)
+ *         .build());
+ * </pre>
+ */
+public final class BEncodeReadConstraints implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_MAX_STRING_LENGTH = Integer.MAX_VALUE;
+
+    public static final int DEFAULT_MAX_DEPTH = 1000;
+
+    public static final int DEFAULT_MAX_NUMBER_LENGTH = 1000;
+
+    public static final long DEFAULT_MAX_DOCUMENT_LENGTH = Long.MAX_VALUE;
+
+    private static final BEncodeReadConstraints DEFAULT = new BEncodeReadConstraints(DEFAULT_MAX_STRING_LENGTH,
+            DEFAULT_MAX_DEPTH, DEFAULT_MAX_NUMBER_LENGTH, DEFAULT_MAX_DOCUMENT_LENGTH);
+
+    private final int maxStringLength;
+
+    private final int maxNestingDepth;
+
+    private final int maxNumberLength;
+
+    private final long maxDocumentLength;
+
+    private BEncodeReadConstraints(int maxStringLength, int maxNestingDepth, int maxNumberLength,
+                                   long maxDocumentLength){
+        this.maxStringLength = maxStringLength;
+        this.maxNestingDepth = maxNestingDepth;
+        this.maxNumberLength = maxNumberLength;
+        this.maxDocumentLength = maxDocumentLength;
+    }
+
+    public static BEncodeReadConstraints defaults(){
+        return DEFAULT;
+    }
+
+    public static Builder builder(){
+        return new Builder(DEFAULT);
+    }
+
+    /**
+     * @return builder starting from these constraints
+     */
+    public Builder rebuild(){
+        return new Builder(this);
+    }
+
+    /**
+     * @return longest string (or dictionary key) accepted, in bytes
+     */
+    public int getMaxStringLength(){
+        return maxStringLength;
+    }
+
+    /**
+     * @return largest number of lists and dictionaries nested in each other
+     */
+    public int getMaxNestingDepth(){
+        return maxNestingDepth;
+    }
+
+    /**
+     * @return longest integer accepted, in characters including its sign
+     */
+    public int getMaxNumberLength(){
+        return maxNumberLength;
+    }
+
+    /**
+     * @return largest root-level value accepted, in bytes
+     */
+    public long getMaxDocumentLength(){
+        return maxDocumentLength;
+    }
+
+    void applyTo(BEncodeParserBase parser){
+        parser.maxStringLength = maxStringLength;
+        parser.maxNestingDepth = maxNestingDepth;
+        parser.maxNumberLength = maxNumberLength;
+        parser.maxDocumentLength = maxDocumentLength;
+    }
+
+    public static final class Builder {
+        private int maxStringLength;
+
+        private int maxNestingDepth;
+
+        private int maxNumberLength;
+
+        private long maxDocumentLength;
+
+        private Builder(BEncodeReadConstraints src){
+            maxStringLength = src.maxStringLength;
+            maxNestingDepth = src.maxNestingDepth;
+            maxNumberLength = src.maxNumberLength;
+            maxDocumentLength = src.maxDocumentLength;
+        }
+
+        public Builder maxStringLength(int length){
+            if(length < 0){
+                throw new IllegalArgumentException("maximum string length must not be negative");
+            }
+            maxStringLength = length;
+            return this;
+        }
+
+        public Builder maxNestingDepth(int depth){
+            if(depth < 0){
+                throw new IllegalArgumentException("maximum nesting depth must not be negative");
+            }
+            maxNestingDepth = depth;
+            return this;
+        }
+
+        public Builder maxNumberLength(int length){
+            if(length <= 0){
+                throw new IllegalArgumentException("maximum number length must be positive");
+            }
+            maxNumberLength = length;
+            return this;
+        }
+
+        public Builder maxDocumentLength(long length){
+            if(length <= 0){
+                throw new IllegalArgumentException("maximum document length must be positive");
+            }
+            maxDocumentLength = length;
+            return this;
+        }
+
+        public BEncodeReadConstraints build(){
+            return new BEncodeReadConstraints(maxStringLength, maxNestingDepth, maxNumberLength, maxDocumentLength);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.STRING_SEPARATOR;
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.UTF_8;
+
+/**
+ * Dictionary key encoded once, length prefix included, so {@link BEncodeGenerator} writes it with a single copy.
+ * {@link BEncodeMapper} gives each bean property such a name; keys used over and over can also be passed to
+ * {@link BEncodeGenerator#writeFieldName(com.fasterxml.jackson.core.SerializableString)} directly.
+ */
+public class BEncodeSerializedName extends SerializedString {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] prefixed;
+
+    public BEncodeSerializedName(String v){
+        super(v);
+        byte[] bytes = v.getBytes(UTF_8);
+        String length = Integer.toString(bytes.length);
+        prefixed = new byte[length.length() + 1 + bytes.length];
+        for (int i = 0; i < length.length(); i++) {
+            prefixed[i] = (byte) length.charAt(i);
+        }
+        prefixed[length.length()] = STRING_SEPARATOR;
+        System.arraycopy(bytes, 0, prefixed, length.length() + 1, bytes.length);
+    }
+
+    /**
+     * @return the key as written in UTF-8 output, {@code <length>:<bytes>}; shared, must not be modified
+     */
+    public byte[] asPrefixedUTF8(){
+        return prefixed;
+    }
+}
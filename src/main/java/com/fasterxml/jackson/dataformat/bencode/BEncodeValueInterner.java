@@ -0,0 +1,239 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.UTF_8;
+
+/**
+ * Bounded cache mapping the bytes of short string values to one canonical {@link String} (and {@code byte[]})
+ * instance, so values repeated across documents (tracker URLs, file path components) are kept once.
+ * Set on a factory with {@link BEncodeFactory#setValueInterner(BEncodeValueInterner)}; an interner can be shared by
+ * several factories and used by any number of parsers concurrently.
+ * <p>
+ * Entries are evicted with the clock algorithm: each lookup marks its entry as recently used, and the eviction hand
+ * passes over marked entries once (clearing the mark) before evicting the first unmarked one. The cache is split
+ * into segments locked separately.
+ */
+public final class BEncodeValueInterner {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 128;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final int maxValueLength;
+
+    public BEncodeValueInterner(){
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * @param capacity       number of values kept at most
+     * @param maxValueLength longest value interned, in bytes; longer values are decoded as usual
+     */
+    public BEncodeValueInterner(int capacity, int maxValueLength){
+        if(capacity < SEGMENTS){
+            throw new IllegalArgumentException("capacity must be at least " + SEGMENTS);
+        }
+        if(maxValueLength < 0){
+            throw new IllegalArgumentException("maximum value length must not be negative");
+        }
+        this.maxValueLength = maxValueLength;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment((capacity + SEGMENTS - 1) / SEGMENTS);
+        }
+    }
+
+    public int getMaxValueLength(){
+        return maxValueLength;
+    }
+
+    /**
+     * @return number of values currently kept
+     */
+    public int size(){
+        int size = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    public void clear(){
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    /**
+     * @return the UTF-8 decoded string, the same instance for equal bytes as long as it stays in the cache
+     */
+    public String internString(byte[] buf, int start, int len){
+        if(len > maxValueLength){
+            return new String(buf, start, len, UTF_8);
+        }
+        final int hash = _hash(buf, start, len);
+        return _segment(hash).intern(buf, start, len, hash, false).string;
+    }
+
+    /**
+     * @return a copy of the bytes, the same instance for equal bytes as long as it stays in the cache; shared
+     * instances must not be modified
+     */
+    public byte[] internBytes(byte[] buf, int start, int len){
+        if(len > maxValueLength){
+            return Arrays.copyOfRange(buf, start, start + len);
+        }
+        final int hash = _hash(buf, start, len);
+        return _segment(hash).intern(buf, start, len, hash, true).binary;
+    }
+
+    private Segment _segment(int hash){
+        return segments[(hash >>> 16) & (SEGMENTS - 1)];
+    }
+
+    private static int _hash(byte[] buf, int start, int len){
+        int h = len;
+        for (int i = start, end = start + len; i < end; i++) {
+            h = 31 * h + buf[i];
+        }
+        // spread the bits used for the slot
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final byte[] key;
+
+        final int hash;
+
+        String string;
+
+        byte[] binary;
+
+        /** set on each lookup, cleared when the clock hand passes */
+        boolean referenced;
+
+        /** position in the clock */
+        int position;
+
+        Entry(byte[] key, int hash){
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Segment {
+        /** open addressing with linear probing, at most half full */
+        private final Entry[] slots;
+
+        private final Entry[] clock;
+
+        private int hand;
+
+        int size;
+
+        Segment(int capacity){
+            clock = new Entry[capacity];
+            slots = new Entry[Integer.highestOneBit(capacity) << 2];
+        }
+
+        synchronized void clear(){
+            Arrays.fill(slots, null);
+            Arrays.fill(clock, null);
+            size = 0;
+            hand = 0;
+        }
+
+        synchronized Entry intern(byte[] buf, int start, int len, int hash, boolean binary){
+            final int mask = slots.length - 1;
+            int i = hash & mask;
+            Entry e;
+            while ((e = slots[i]) != null) {
+                if(e.hash == hash && _equals(e.key, buf, start, len)){
+                    e.referenced = true;
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            if(e == null){
+                e = new Entry(Arrays.copyOfRange(buf, start, start + len), hash);
+                _add(e);
+            }
+            if(binary){
+                if(e.binary == null){
+                    // the key itself is never handed out, so a modified value can't corrupt the table
+                    e.binary = e.key.clone();
+                }
+            } else if(e.string == null){
+                e.string = new String(e.key, UTF_8);
+            }
+            return e;
+        }
+
+        private void _add(Entry e){
+            if(size == clock.length){
+                Entry victim;
+                while ((victim = clock[hand]).referenced) {
+                    victim.referenced = false;
+                    hand = (hand + 1) % clock.length;
+                }
+                _remove(victim);
+                e.position = hand;
+                hand = (hand + 1) % clock.length;
+            } else {
+                e.position = size++;
+            }
+            clock[e.position] = e;
+            final int mask = slots.length - 1;
+            int i = e.hash & mask;
+            while (slots[i] != null) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = e;
+        }
+
+        private void _remove(Entry e){
+            final int mask = slots.length - 1;
+            int i = e.hash & mask;
+            while (slots[i] != e) {
+                i = (i + 1) & mask;
+            }
+            // shift back the entries of the probe sequence following the removed one
+            int j = i;
+            while (true) {
+                slots[i] = null;
+                Entry next;
+                while (true) {
+                    j = (j + 1) & mask;
+                    if((next = slots[j]) == null){
+                        return;
+                    }
+                    int home = next.hash & mask;
+                    // next can fill the gap unless its home slot lies cyclically in (i, j]
+                    if(i <= j ? (home <= i || home > j) : (home <= i && home > j)){
+                        break;
+                    }
+                }
+                slots[i] = next;
+                i = j;
+            }
+        }
+
+        private static boolean _equals(byte[] key, byte[] buf, int start, int len){
+            if(key.length != len){
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if(key[i] != buf[start + i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes or encodes a batch of small documents with a bounded number of workers. Each worker takes the next
+ * document of the batch until none is left, reusing a single parser or generator (and its buffers) for all the
+ * documents it handles.
+ */
+final class BatchCodec {
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private BatchCodec(){
+    }
+
+    /**
+     * One per worker, handles the documents of the batch the worker takes.
+     */
+    private interface Worker extends AutoCloseable {
+        void process(int index) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private interface WorkerFactory {
+        Worker create() throws IOException;
+    }
+
+    /**
+     * @param payloads byte[] or ByteBuffer documents
+     */
+    static <T> List<T> read(final BEncodeFactory factory, final ObjectReader reader, final Object[] payloads,
+                            Executor executor, int concurrency) throws IOException{
+        final Object[] results = new Object[payloads.length];
+        _run(payloads.length, executor, concurrency, () -> new Worker() {
+            private final BEncodeByteArrayParser parser = (BEncodeByteArrayParser) factory.createParser(NO_BYTES);
+
+            /** direct buffers are copied here */
+            private byte[] copy = NO_BYTES;
+
+            @Override
+            public void process(int index) throws IOException{
+                Object payload = payloads[index];
+                if(payload instanceof byte[]){
+                    byte[] data = (byte[]) payload;
+                    parser.reset(data, 0, data.length);
+                } else {
+                    ByteBuffer buffer = (ByteBuffer) payload;
+                    int len = buffer.remaining();
+                    if(buffer.hasArray()){
+                        parser.reset(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+                    } else {
+                        if(copy.length < len){
+                            copy = new byte[Math.max(len, copy.length << 1)];
+                        }
+                        buffer.duplicate().get(copy, 0, len);
+                        parser.reset(copy, 0, len);
+                    }
+                }
+                parser.nextToken();
+                results[index] = reader.readValue(parser);
+            }
+
+            @Override
+            public void close() throws IOException{
+                parser.close();
+            }
+        });
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    static List<byte[]> write(final BEncodeFactory factory, final ObjectWriter writer, final Object[] values,
+                              Executor executor, int concurrency) throws IOException{
+        final byte[][] results = new byte[values.length][];
+        _run(values.length, executor, concurrency, () -> new Worker() {
+            private final ByteArrayBuilder out = new ByteArrayBuilder();
+
+            // documents are written one after the other as root-level values, taken out after each one
+            private final JsonGenerator generator = factory.createGenerator(out);
+
+            @Override
+            public void process(int index) throws IOException{
+                writer.writeValue(generator, values[index]);
+                generator.flush();
+                results[index] = out.toByteArray();
+                out.reset();
+            }
+
+            @Override
+            public void close() throws IOException{
+                generator.close();
+                out.release();
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private static void _run(final int size, Executor executor, int concurrency, final WorkerFactory workers) throws IOException{
+        if(concurrency <= 0){
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        final AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] running = new CompletableFuture<?>[Math.min(concurrency, size)];
+        for (int i = 0; i < running.length; i++) {
+            running[i] = CompletableFuture.runAsync(() -> {
+                try (Worker worker = workers.create()) {
+                    for (int index; (index = next.getAndIncrement()) < size; ) {
+                        worker.process(index);
+                    }
+                } catch (IOException e) {
+                    // stop the other workers
+                    next.set(size);
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException | Error e) {
+                    next.set(size);
+                    throw e;
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(running).get();
+        } catch (InterruptedException e) {
+            next.set(size);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while processing batch");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if(cause instanceof UncheckedIOException){
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
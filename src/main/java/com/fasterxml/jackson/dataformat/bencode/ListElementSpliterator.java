@@ -0,0 +1,189 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Splits the elements of a root-level list by their offsets, found with a single scan that skips over the elements
+ * (see {@link BEncodeParserBase#skipChildren()}). Each split range is bound with its own parser opened at the first
+ * element of the range, so ranges can be deserialized concurrently. The parser of a range is kept open across
+ * {@link #tryAdvance(Consumer)} calls until the range is exhausted; parsers of ranges abandoned before that (by
+ * {@code findFirst()} or {@code limit()}) are closed by {@link #close()}, run when the stream is closed.
+ */
+class ListElementSpliterator<T> implements Spliterator<T>, Closeable {
+
+    private final BEncodeFactory factory;
+
+    private final ObjectReader reader;
+
+    /** exactly one of data and file is set */
+    private final byte[] data;
+
+    private final File file;
+
+    /** offset of each element, followed by the offset of the list's end marker */
+    private final long[] offsets;
+
+    private int from;
+
+    private final int to;
+
+    /** parser positioned before the element at {@code from}, null until an element of the range is read */
+    private JsonParser parser;
+
+    /** parsers left open by this spliterator and the ones split from it */
+    private final Queue<JsonParser> openParsers;
+
+    private ListElementSpliterator(BEncodeFactory factory, ObjectReader reader, byte[] data, File file,
+                                   long[] offsets, int from, int to, Queue<JsonParser> openParsers){
+        this.factory = factory;
+        this.reader = reader;
+        this.data = data;
+        this.file = file;
+        this.offsets = offsets;
+        this.from = from;
+        this.to = to;
+        this.openParsers = openParsers;
+    }
+
+    static <T> ListElementSpliterator<T> over(BEncodeFactory factory, ObjectReader reader, byte[] data) throws IOException{
+        try (JsonParser p = factory.createParser(data)) {
+            long[] offsets = _scan(p);
+            return new ListElementSpliterator<>(factory, reader, data, null, offsets, 0, offsets.length - 1,
+                    new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    static <T> ListElementSpliterator<T> over(BEncodeFactory factory, ObjectReader reader, File file) throws IOException{
+        try (JsonParser p = factory.createMappedParser(file)) {
+            long[] offsets = _scan(p);
+            return new ListElementSpliterator<>(factory, reader, null, file, offsets, 0, offsets.length - 1,
+                    new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    private static long[] _scan(JsonParser p) throws IOException{
+        JsonToken t = p.nextToken();
+        if(t != JsonToken.START_ARRAY){
+            throw new JsonParseException(p, "expected a list at the root, not " + t);
+        }
+        long[] offsets = new long[64];
+        int n = 0;
+        while (true) {
+            t = p.nextToken();
+            if(n == offsets.length){
+                offsets = Arrays.copyOf(offsets, n << 1);
+            }
+            offsets[n++] = p.getTokenLocation().getByteOffset();
+            if(t == JsonToken.END_ARRAY){
+                return Arrays.copyOf(offsets, n);
+            }
+            p.skipChildren();
+        }
+    }
+
+    private JsonParser _open(int first, int end) throws IOException{
+        if(data != null){
+            return factory.createParser(data, (int) offsets[first], (int) (offsets[end] - offsets[first]));
+        }
+        return factory.createMappedParser(file, offsets[first]);
+    }
+
+    private void _closeParser() throws IOException{
+        if(parser != null){
+            openParsers.remove(parser);
+            JsonParser p = parser;
+            parser = null;
+            p.close();
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action){
+        if(from >= to){
+            return false;
+        }
+        try {
+            if(parser == null){
+                parser = _open(from, to);
+                openParsers.add(parser);
+            }
+            parser.nextToken();
+            T value = reader.readValue(parser);
+            if(++from == to){
+                _closeParser();
+            }
+            action.accept(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action){
+        if(parser != null){
+            while (tryAdvance(action)) ;
+            return;
+        }
+        if(from < to){
+            try (JsonParser p = _open(from, to)) {
+                for (; from < to; from++) {
+                    p.nextToken();
+                    action.accept(reader.<T>readValue(p));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit(){
+        int mid = (from + to) >>> 1;
+        if(mid <= from){
+            return null;
+        }
+        // an open parser stays with the prefix, which starts where it is positioned
+        ListElementSpliterator<T> prefix = new ListElementSpliterator<>(factory, reader, data, file, offsets, from,
+                mid, openParsers);
+        prefix.parser = parser;
+        parser = null;
+        from = mid;
+        return prefix;
+    }
+
+    /**
+     * Closes the parsers still open in this spliterator and all split from it.
+     */
+    @Override
+    public void close() throws IOException{
+        parser = null;
+        JsonParser p;
+        while ((p = openParsers.poll()) != null) {
+            p.close();
+        }
+    }
+
+    @Override
+    public long estimateSize(){
+        return to - from;
+    }
+
+    @Override
+    public int characteristics(){
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+}
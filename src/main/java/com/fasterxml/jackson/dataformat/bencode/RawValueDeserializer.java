@@ -0,0 +1,38 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binds a property to the encoded bytes of its value, as they appear in the input, e.g.
+ * <pre>
+ * &#64;JsonDeserialize(using = RawValueDeserializer.class)
+ * private byte[] info;
+ * </pre>
+ * Only works with BEncode parsers reading the input directly (not for buffered content, like properties read
+ * before a polymorphic type id).
+ */
+public class RawValueDeserializer extends StdDeserializer<byte[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    public RawValueDeserializer(){
+        super(byte[].class);
+    }
+
+    @Override
+    public byte[] deserialize(JsonParser p, DeserializationContext ctxt) throws IOException{
+        if(!(p instanceof BEncodeParserBase)){
+            return (byte[]) ctxt.reportInputMismatch(this,
+                    "raw values can only be read from a BEncode parser, not %s", p.getClass().getName());
+        }
+        ByteBuffer raw = ((BEncodeParserBase) p).readRawValue();
+        byte[] bytes = new byte[raw.remaining()];
+        raw.get(bytes);
+        return bytes;
+    }
+}
@@ -20,6 +20,9 @@ public class NumberContext {
     private static byte[] MAX_INT_STR = "2147483647".getBytes(Charset.forName("ISO-8859-1"));
     private static byte[] MIN_LONG_STR = "-9223372036854775808".getBytes(Charset.forName("ISO-8859-1"));
     private static byte[] MIN_INT_STR = "-2147483648".getBytes(Charset.forName("ISO-8859-1"));
+    // magnitudes of the minimum values, for numbers whose sign has already been consumed
+    private static byte[] MIN_LONG_DIGITS = "9223372036854775808".getBytes(Charset.forName("ISO-8859-1"));
+    private static byte[] MIN_INT_DIGITS = "2147483648".getBytes(Charset.forName("ISO-8859-1"));
 
     private int numberLength;
     private JsonParser.NumberType currentType;
@@ -52,13 +55,73 @@ public class NumberContext {
     }
 
     int compareBytes(byte[] a, int offset) {
+        return compareBytes(a, numBuf, offset);
+    }
+
+    static int compareBytes(byte[] a, byte[] buf, int offset) {
         for (byte ca : a) {
-            if (ca < numBuf[offset]) return -1;
-            if (ca > numBuf[offset++]) return 1;
+            if (ca < buf[offset]) return -1;
+            if (ca > buf[offset++]) return 1;
         }
         return 0;
     }
 
+    /**
+     * Smallest type holding an integer, without parsing it.
+     *
+     * @param offset position of the first digit, after any sign
+     * @param digits number of digits, without leading zeros
+     */
+    public static JsonParser.NumberType guessType(byte[] buf, int offset, int digits, boolean negative) {
+        if (digits < MAX_INT_STR.length) return JsonParser.NumberType.INT;
+        if (digits == MAX_INT_STR.length) {
+            return compareBytes(negative ? MIN_INT_DIGITS : MAX_INT_STR, buf, offset) >= 0 ?
+                    JsonParser.NumberType.INT : JsonParser.NumberType.LONG;
+        }
+        if (digits < MAX_LONG_STR.length) return JsonParser.NumberType.LONG;
+        if (digits == MAX_LONG_STR.length) {
+            return compareBytes(negative ? MIN_LONG_DIGITS : MAX_LONG_STR, buf, offset) >= 0 ?
+                    JsonParser.NumberType.LONG : JsonParser.NumberType.BIG_INTEGER;
+        }
+        return JsonParser.NumberType.BIG_INTEGER;
+    }
+
+    /**
+     * Parses up to 19 validated digits, eight at a time. The result wraps around for magnitudes beyond
+     * {@link Long#MAX_VALUE}, which keeps negating it correct for {@link Long#MIN_VALUE}.
+     */
+    public static long parseDigits(byte[] buf, int offset, int digits) {
+        final int end = offset + digits;
+        long value = 0;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            value = value * 100000000L + parseEightDigits(buf, i);
+        }
+        for (; i < end; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts eight ASCII digits within a single long (SWAR): adjacent digits are combined pairwise into 2, then 4,
+     * then 8 digit values with one multiplication per step.
+     */
+    static int parseEightDigits(byte[] buf, int offset) {
+        // little endian, so the first digit ends up in the lowest byte
+        long chunk = (buf[offset] & 0xFFL)
+                | (buf[offset + 1] & 0xFFL) << 8
+                | (buf[offset + 2] & 0xFFL) << 16
+                | (buf[offset + 3] & 0xFFL) << 24
+                | (buf[offset + 4] & 0xFFL) << 32
+                | (buf[offset + 5] & 0xFFL) << 40
+                | (buf[offset + 6] & 0xFFL) << 48
+                | (buf[offset + 7] & 0xFFL) << 56;
+        chunk = ((chunk & 0x0F0F0F0F0F0F0F0FL) * 2561) >>> 8;
+        chunk = ((chunk & 0x00FF00FF00FF00FFL) * 6553601) >>> 16;
+        return (int) (((chunk & 0x0000FFFF0000FFFFL) * 42949672960001L) >>> 32);
+    }
+
     public JsonParser.NumberType guessType() throws IOException {
         // only int -> long -> BigInt need to be handled
         final int readBytes = MAX_SUPPORTED_NUMBER_LENGTH + 1;
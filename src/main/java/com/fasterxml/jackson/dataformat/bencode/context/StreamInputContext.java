@@ -25,7 +25,7 @@ public class StreamInputContext extends InputStream {
     public long skip(long n) throws IOException {
         long skipped = 0, cSkipped;
         while (skipped < n && (cSkipped = in.skip(n - skipped)) > 0) skipped += cSkipped;
-        location.advance((int) skipped);
+        location.advance(skipped);
         return skipped;
     }
 
@@ -1,23 +1,215 @@
 package com.fasterxml.jackson.dataformat.bencode.context;
 
+import com.fasterxml.jackson.core.io.IOContext;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 public class StreamOutputContext implements OutputContext {
     private final Charset charset;
     private OutputStream outputStream;
     private Writer writer;
 
+    /** owner of the output buffer, null if the buffer isn't recycled */
+    private final IOContext ioContext;
+
+    /** bytes not yet written to the stream, null if writing straight to it */
+    private byte[] buffer;
+
+    private int tail;
+
+    /** end of the room in the buffer */
+    private int end;
+
+    private boolean closed;
+
+    /** target of the buffer when writing to a channel, the stream then only wraps it */
+    private final WritableByteChannel channel;
+
+    /** target when writing into a byte buffer, replaced by a larger one when growable */
+    private ByteBuffer target;
+
+    private final boolean growable;
+
+    /** whether the buffer is the backing array of a heap target, written in place */
+    private final boolean inPlace;
+
+    /** whether strings are encoded by this context rather than the charset */
+    private final boolean utf8;
+
+    /** digits of numbers written without a buffer */
+    private final byte[] scratch = new byte[MAX_LONG_LENGTH];
+
     public StreamOutputContext(OutputStream outputStream, Charset charset) {
+        this(outputStream, charset, null);
+    }
+
+    /**
+     * Output is collected in a buffer taken from {@code ioContext} and written to the stream only when the buffer
+     * is full, flushed or closed; on close the buffer is returned to the context's recycler.
+     */
+    public StreamOutputContext(OutputStream outputStream, Charset charset, IOContext ioContext) {
+        this(outputStream, charset, ioContext, null);
+    }
+
+    /**
+     * Buffered output written to a blocking channel. Values that don't fit in the buffer are written from their own
+     * array rather than copied, together with the buffered bytes in one call if the channel is a
+     * {@link GatheringByteChannel}.
+     */
+    public StreamOutputContext(WritableByteChannel channel, Charset charset, IOContext ioContext) {
+        this(Channels.newOutputStream(requireBlocking(channel)), charset, ioContext, channel);
+    }
+
+    private StreamOutputContext(OutputStream outputStream, Charset charset, IOContext ioContext,
+                                WritableByteChannel channel) {
         this.charset = charset;
         this.outputStream = outputStream;
+        this.ioContext = ioContext;
+        this.channel = channel;
+        growable = false;
+        inPlace = false;
+        utf8 = UTF_8.equals(charset);
+        if (ioContext != null) {
+            buffer = ioContext.allocWriteEncodingBuffer();
+            end = buffer.length;
+        }
+    }
+
+    /**
+     * UTF-8 output written into {@code target} from its position, which is moved past the output on flush and close.
+     * Heap buffers are written in place. Direct buffers are written through a buffer taken from {@code ioContext},
+     * copied into the target when full and on flush, so their output is only checked against the target's room then.
+     * Output that doesn't fit makes a growable target be replaced by a larger buffer of the same kind (see
+     * {@link #getOutputTarget()}) and a fixed one throw {@link BufferOverflowException}, leaving its position where
+     * the last flush left it.
+     */
+    public StreamOutputContext(ByteBuffer target, boolean growable, IOContext ioContext) {
+        this.charset = UTF_8;
+        this.ioContext = ioContext;
+        this.channel = null;
+        this.target = target;
+        this.growable = growable;
+        utf8 = true;
+        outputStream = new TargetStream();
+        inPlace = target.hasArray();
+        if (inPlace) {
+            pointAtTarget();
+        } else {
+            buffer = ioContext.allocWriteEncodingBuffer();
+            end = buffer.length;
+        }
+    }
+
+    private static WritableByteChannel requireBlocking(WritableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        return channel;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (inPlace) {
+            ((Buffer) target).position(tail - target.arrayOffset());
+            return;
+        }
+        if (tail > 0) {
+            int len = tail;
+            tail = 0;
+            writeThrough(buffer, 0, len);
+        }
+    }
+
+    /**
+     * Makes room for {@code n} bytes in the buffer; at most the buffer's size unless the target is written in place.
+     */
+    private void ensureRoom(int n) throws IOException {
+        if (!inPlace) {
+            flushBuffer();
+            return;
+        }
+        if (end - tail >= n) {
+            return;
+        }
+        if (!growable) {
+            throw new BufferOverflowException();
+        }
+        flushBuffer();
+        growTarget(n);
+        pointAtTarget();
+    }
+
+    private void pointAtTarget() {
+        buffer = target.array();
+        tail = target.arrayOffset() + target.position();
+        end = target.arrayOffset() + target.limit();
+    }
+
+    /**
+     * Writes bytes past the buffer, to wherever the buffer is flushed.
+     */
+    private void writeThrough(byte[] data, int offset, int len) throws IOException {
+        if (target != null) {
+            if (target.remaining() < len) {
+                growTarget(len);
+            }
+            target.put(data, offset, len);
+        } else if (channel != null) {
+            writeFully(ByteBuffer.wrap(data, offset, len));
+        } else {
+            outputStream.write(data, offset, len);
+        }
+    }
+
+    /**
+     * Replaces the target by one with room for {@code n} more bytes, holding what was written so far.
+     */
+    private void growTarget(int n) {
+        if (!growable) {
+            throw new BufferOverflowException();
+        }
+        int needed = target.position() + n;
+        if (needed < 0) {
+            throw new OutOfMemoryError("output exceeds maximum buffer size");
+        }
+        int doubled = target.capacity() <= Integer.MAX_VALUE >> 1 ? target.capacity() << 1 : Integer.MAX_VALUE;
+        int capacity = Math.max(needed, doubled);
+        ByteBuffer grown = target.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        grown.order(target.order());
+        ((Buffer) target).flip();
+        grown.put(target);
+        target = grown;
+    }
+
+    /**
+     * @return the buffer, channel or stream written to; a growable buffer is replaced when full, so this is the one
+     * holding the output once flushed
+     */
+    public Object getOutputTarget() {
+        if (target != null) {
+            return target;
+        }
+        return channel != null ? channel : outputStream;
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
     }
 
     @Override
@@ -30,6 +222,7 @@ public class StreamOutputContext implements OutputContext {
         if (writer != null) {
             writer.flush();
         }
+        flushBuffer();
         writer = null;
         return outputStream;
     }
@@ -37,35 +230,85 @@ public class StreamOutputContext implements OutputContext {
     @Override
     public Writer getWriter() throws IOException {
         if (writer != null) return writer;
+        flushBuffer();
         return new BufferedWriter(new OutputStreamWriter(outputStream, charset));
     }
 
     @Override
     public void write(String text) throws IOException {
-        outputStream.write(text.getBytes(charset));
+        if (utf8 && buffer != null) {
+            writeUtf8(text);
+        } else {
+            write(text.getBytes(charset));
+        }
     }
 
     @Override
     public void write(byte b) throws IOException {
-        outputStream.write(b);
+        if (buffer == null) {
+            outputStream.write(b);
+            return;
+        }
+        if (tail == end) {
+            ensureRoom(1);
+        }
+        buffer[tail++] = b;
     }
 
     @Override
     public void write(byte[] data, int offset, int len) throws IOException {
-        outputStream.write(data, offset, len);
+        if (buffer == null) {
+            outputStream.write(data, offset, len);
+            return;
+        }
+        if (len > end - tail) {
+            if (channel != null && len >= buffer.length >> 1) {
+                writeAround(data, offset, len);
+                return;
+            }
+            ensureRoom(len);
+            if (!inPlace && len >= end) {
+                // no point copying what fills the buffer anyway
+                writeThrough(data, offset, len);
+                return;
+            }
+        }
+        System.arraycopy(data, offset, buffer, tail, len);
+        tail += len;
+    }
+
+    /**
+     * Writes the buffered bytes followed by a large value without copying the value into the buffer.
+     */
+    private void writeAround(byte[] data, int offset, int len) throws IOException {
+        ByteBuffer value = ByteBuffer.wrap(data, offset, len);
+        if (tail > 0 && channel instanceof GatheringByteChannel) {
+            ByteBuffer[] srcs = {ByteBuffer.wrap(buffer, 0, tail), value};
+            tail = 0;
+            while (value.hasRemaining()) {
+                ((GatheringByteChannel) channel).write(srcs);
+            }
+            return;
+        }
+        flushBuffer();
+        writeFully(value);
     }
 
     @Override
     public void write(byte[] bytes) throws IOException {
-        outputStream.write(bytes);
+        write(bytes, 0, bytes.length);
     }
 
     @Override
     public void write(char[] data, int offset, int len) throws IOException {
+        if (utf8 && buffer != null) {
+            writeUtf8(data, offset, len);
+            return;
+        }
         ByteBuffer bb = charset.encode(CharBuffer.wrap(data, offset, len));
         byte[] bytes = new byte[bb.limit()];
         bb.get(bytes);
-        outputStream.write(bytes);
+        write(bytes);
     }
 
     @Override
@@ -73,51 +316,345 @@ public class StreamOutputContext implements OutputContext {
 
     }
 
-    @Override
-    public void write(int i) throws IOException {
-        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
-        byte[] buf = new byte[size];
-        getBytes(i, size, buf);
-        write(buf);
+    /**
+     * @return whether strings are written as UTF-8, so they can be measured with {@link #utf8Length(String)} and
+     * written with {@link #writeUtf8(String)}
+     */
+    public boolean isUtf8() {
+        return utf8;
     }
 
-    static byte [] getByteBuf(long i) {
-        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
-        byte[] buf = new byte[size];
-        getBytes(i, size, buf);
-        return buf;
+    /**
+     * @return length of {@code text} encoded as UTF-8, without encoding it; unpaired surrogates count as the single
+     * '?' they are replaced with, as by {@link String#getBytes(Charset)}
+     */
+    public static int utf8Length(String text) {
+        final int len = text.length();
+        int bytes = len;
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // 4 bytes for the pair
+                    bytes += 2;
+                    i++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @see #utf8Length(String)
+     */
+    public static int utf8Length(char[] text, int offset, int len) {
+        final int end = offset + len;
+        int bytes = len;
+        for (int i = offset; i < end; i++) {
+            char c = text[i];
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text[i + 1])) {
+                    bytes += 2;
+                    i++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes {@code text} as UTF-8 straight into the output buffer, with the same output as
+     * {@link String#getBytes(Charset)}.
+     */
+    public void writeUtf8(String text) throws IOException {
+        if (buffer == null) {
+            write(text.getBytes(UTF_8));
+            return;
+        }
+        final int n = text.length();
+        byte[] buf = buffer;
+        int ptr = tail;
+        int i = 0;
+        while (i < n) {
+            if (ptr == end) {
+                tail = ptr;
+                ensureRoom(1);
+                buf = buffer;
+                ptr = tail;
+            }
+            // ASCII runs are copied as they are, as far as the buffer goes
+            int max = Math.min(n, i + end - ptr);
+            char c = 0;
+            while (i < max && (c = text.charAt(i)) < 0x80) {
+                buf[ptr++] = (byte) c;
+                i++;
+            }
+            if (i == max) {
+                continue;
+            }
+            i++;
+            final boolean pair = Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(text.charAt(i));
+            if (end - ptr < 4) {
+                int need = utf8Length(c, pair);
+                if (end - ptr < need) {
+                    tail = ptr;
+                    ensureRoom(need);
+                    buf = buffer;
+                    ptr = tail;
+                }
+            }
+            if (c < 0x800) {
+                buf[ptr++] = (byte) (0xC0 | (c >> 6));
+                buf[ptr++] = (byte) (0x80 | (c & 0x3F));
+            } else if (pair) {
+                ptr = _put4(Character.toCodePoint(c, text.charAt(i++)), buf, ptr);
+            } else if (!Character.isSurrogate(c)) {
+                ptr = _put3(c, buf, ptr);
+            } else {
+                buf[ptr++] = '?';
+            }
+        }
+        tail = ptr;
     }
 
+    /**
+     * @see #writeUtf8(String)
+     */
+    public void writeUtf8(char[] text, int offset, int len) throws IOException {
+        if (buffer == null) {
+            write(new String(text, offset, len).getBytes(UTF_8));
+            return;
+        }
+        final int stop = offset + len;
+        byte[] buf = buffer;
+        int ptr = tail;
+        int i = offset;
+        while (i < stop) {
+            if (ptr == end) {
+                tail = ptr;
+                ensureRoom(1);
+                buf = buffer;
+                ptr = tail;
+            }
+            int max = Math.min(stop, i + end - ptr);
+            char c = 0;
+            while (i < max && (c = text[i]) < 0x80) {
+                buf[ptr++] = (byte) c;
+                i++;
+            }
+            if (i == max) {
+                continue;
+            }
+            i++;
+            final boolean pair = Character.isHighSurrogate(c) && i < stop && Character.isLowSurrogate(text[i]);
+            if (end - ptr < 4) {
+                int need = utf8Length(c, pair);
+                if (end - ptr < need) {
+                    tail = ptr;
+                    ensureRoom(need);
+                    buf = buffer;
+                    ptr = tail;
+                }
+            }
+            if (c < 0x800) {
+                buf[ptr++] = (byte) (0xC0 | (c >> 6));
+                buf[ptr++] = (byte) (0x80 | (c & 0x3F));
+            } else if (pair) {
+                ptr = _put4(Character.toCodePoint(c, text[i++]), buf, ptr);
+            } else if (!Character.isSurrogate(c)) {
+                ptr = _put3(c, buf, ptr);
+            } else {
+                buf[ptr++] = '?';
+            }
+        }
+        tail = ptr;
+    }
+
+    /**
+     * @return encoded length of a non-ASCII char, or of the surrogate pair it starts
+     */
+    private static int utf8Length(char c, boolean pair) {
+        if (c < 0x800) {
+            return 2;
+        }
+        if (pair) {
+            return 4;
+        }
+        // unpaired surrogates are replaced by '?'
+        return Character.isSurrogate(c) ? 1 : 3;
+    }
+
+    private static int _put3(char c, byte[] buf, int ptr) {
+        buf[ptr++] = (byte) (0xE0 | (c >> 12));
+        buf[ptr++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[ptr++] = (byte) (0x80 | (c & 0x3F));
+        return ptr;
+    }
+
+    private static int _put4(int cp, byte[] buf, int ptr) {
+        buf[ptr++] = (byte) (0xF0 | (cp >> 18));
+        buf[ptr++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        buf[ptr++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        buf[ptr++] = (byte) (0x80 | (cp & 0x3F));
+        return ptr;
+    }
+
+    @Override
+    public void write(int i) throws IOException {
+        write((long) i);
+    }
+
+    /**
+     * Writes the digits straight into the output buffer (or a scratch array when unbuffered), without allocating.
+     */
     @Override
     public void write(long i) throws IOException {
-        write(getByteBuf(i));
+        if (buffer == null) {
+            outputStream.write(scratch, 0, putLong(i, scratch, 0));
+            return;
+        }
+        if (end - tail < MAX_LONG_LENGTH) {
+            int len = longLength(i);
+            if (end - tail < len) {
+                ensureRoom(len);
+            }
+        }
+        tail = putLong(i, buffer, tail);
+    }
+
+    static byte [] getByteBuf(long i) {
+        byte[] buf = new byte[MAX_LONG_LENGTH];
+        return Arrays.copyOf(buf, putLong(i, buf, 0));
     }
 
     static final Charset AS_IS = Charset.forName("ISO-8859-1");
-    static final BigInteger BIG_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
 
     /**
      * @param i big int to be encoded
      * @return integer in base 10 as a byte array;
      */
     static byte[] getByteBuf(BigInteger i) {
-        if (i.compareTo(BIG_LONG) <= 0) {
-            return getByteBuf(i.longValue());
-        }
-
-        return i.toString().getBytes(AS_IS);
+        byte[] buf = new byte[maxLength(i)];
+        return Arrays.copyOf(buf, putBigInteger(i, buf, 0));
     }
 
     @Override
     public void write(BigInteger i) throws IOException {
-        write(getByteBuf(i));
+        if (i.bitLength() < 64) {
+            write(i.longValue());
+            return;
+        }
+        final int max = maxLength(i);
+        if (buffer != null) {
+            if (end - tail < max && !inPlace && max <= buffer.length) {
+                flushBuffer();
+            }
+            if (end - tail >= max) {
+                tail = putBigInteger(i, buffer, tail);
+                return;
+            }
+        }
+        // the bound may be a digit too large for what's left of a target written in place
+        byte[] buf = new byte[max];
+        int len = putBigInteger(i, buf, 0);
+        if (buffer == null) {
+            outputStream.write(buf, 0, len);
+        } else {
+            write(buf, 0, len);
+        }
     }
 
-    // Requires positive x
-    static int stringSize(int x) {
-        for (int i=0; ; i++)
-            if (x <= SIZE_TABLE[i])
-                return i+1;
+    /** length of Long.MIN_VALUE in base 10, the longest long */
+    static final int MAX_LONG_LENGTH = 20;
+
+    private static final byte[] MIN_LONG_BYTES = "-9223372036854775808".getBytes(AS_IS);
+
+    /** largest power of ten below 2^63, BigIntegers are encoded in chunks of that many digits */
+    private static final BigInteger CHUNK = BigInteger.valueOf(1000000000000000000L);
+
+    private static final int CHUNK_DIGITS = 18;
+
+    /** above this, the divide and conquer of BigInteger.toString() beats taking off a chunk per division */
+    private static final int MAX_CHUNKED_BITS = 4096;
+
+    /**
+     * @return upper bound of the encoded length of {@code i}, sign included
+     */
+    static int maxLength(BigInteger i) {
+        // log10(2) rounded up
+        return (int) (i.bitLength() * 0.30103) + 2;
+    }
+
+    /**
+     * @return number of bytes {@link #putLong(long, byte[], int)} writes for {@code i}
+     */
+    static int longLength(long i) {
+        if (i < 0) {
+            return i == Long.MIN_VALUE ? MIN_LONG_BYTES.length : 1 + stringSize(-i);
+        }
+        return stringSize(i);
+    }
+
+    /**
+     * @return offset following the digits of {@code i} written at {@code offset}
+     */
+    static int putLong(long i, byte[] buf, int offset) {
+        if (i < 0) {
+            if (i == Long.MIN_VALUE) {
+                System.arraycopy(MIN_LONG_BYTES, 0, buf, offset, MIN_LONG_BYTES.length);
+                return offset + MIN_LONG_BYTES.length;
+            }
+            buf[offset++] = '-';
+            i = -i;
+        }
+        int end = offset + stringSize(i);
+        getBytes(i, end, buf);
+        return end;
+    }
+
+    /**
+     * @param buf must have room for {@link #maxLength(BigInteger)} bytes at {@code offset}
+     * @return offset following the digits of {@code i} written at {@code offset}
+     */
+    static int putBigInteger(BigInteger i, byte[] buf, int offset) {
+        if (i.bitLength() < 64) {
+            return putLong(i.longValue(), buf, offset);
+        }
+        if (i.bitLength() > MAX_CHUNKED_BITS) {
+            byte[] digits = i.toString().getBytes(AS_IS);
+            System.arraycopy(digits, 0, buf, offset, digits.length);
+            return offset + digits.length;
+        }
+        if (i.signum() < 0) {
+            buf[offset++] = '-';
+            i = i.negate();
+        }
+        // least significant chunk first, each division takes off more than 59 bits
+        long[] chunks = new long[i.bitLength() / 59 + 1];
+        int n = 0;
+        while (i.bitLength() >= 63) {
+            BigInteger[] div = i.divideAndRemainder(CHUNK);
+            chunks[n++] = div[1].longValue();
+            i = div[0];
+        }
+        offset = putLong(i.longValue(), buf, offset);
+        while (n > 0) {
+            // leading zeros of the chunk are kept
+            Arrays.fill(buf, offset, offset + CHUNK_DIGITS, (byte) '0');
+            offset += CHUNK_DIGITS;
+            getBytes(chunks[--n], offset, buf);
+        }
+        return offset;
     }
 
     // Requires positive x
@@ -130,9 +667,6 @@ public class StreamOutputContext implements OutputContext {
         return 19;
     }
 
-    final static int[] SIZE_TABLE = {
-            9, 99, 999, 9999, 99999, 999999, 9999999, 99999999, 999999999, Integer.MAX_VALUE };
-
     final static byte[] DIGIT_ONES = {
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
@@ -216,37 +750,46 @@ public class StreamOutputContext implements OutputContext {
         getBytes((int) i, charPos, buf); // inline for performance improvement?
     }
 
-    private static BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
-    private static BigInteger HUNDRED = BigInteger.valueOf(100);
-
-    static void getBytes(BigInteger i, int index, byte[] buf) {
-        BigInteger[] div;
-        int r;
-        int charPos = index;
-
-        if (i.signum() < 0) {
-            buf[0] = '-';
-            i = i.negate();
-        }
-
-        while (i.compareTo(MAX_LONG) > 0) {
-            div = i.divideAndRemainder(HUNDRED);
-            i = div[0];
-            r = div[1].intValue();
-            buf[--charPos] = DIGIT_ONES[r];
-            buf[--charPos] = DIGIT_TENS[r];
-        }
-
-        getBytes(i.longValue(), charPos, buf);
-    }
-
     @Override
     public void close() throws IOException {
-        outputStream.close();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBuffer();
+        } finally {
+            if (buffer != null) {
+                byte[] buf = buffer;
+                buffer = null;
+                if (!inPlace) {
+                    ioContext.releaseWriteEncodingBuffer(buf);
+                }
+            }
+            outputStream.close();
+        }
     }
 
     @Override
     public void flush() throws IOException {
+        if (buffer != null) {
+            flushBuffer();
+        }
         outputStream.flush();
     }
+
+    /**
+     * Raw access to a byte buffer target, through the buffer of this context.
+     */
+    private final class TargetStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            StreamOutputContext.this.write((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            StreamOutputContext.this.write(b, off, len);
+        }
+    }
 }
@@ -4,8 +4,8 @@ package com.fasterxml.jackson.dataformat.bencode.location;
 import com.fasterxml.jackson.core.JsonLocation;
 
 public class Location {
-    int inBytes = 0;
-    int inChars = 0;
+    long inBytes = 0;
+    long inChars = 0;
 
     public void set(Location location) {
         this.inBytes = location.inBytes;
@@ -13,6 +13,6 @@ public class Location {
     }
 
     public JsonLocation getJsonLocation(Object objectRef) {
-        return new JsonLocation(objectRef, inBytes, inChars, 1, inChars);
+        return new JsonLocation(objectRef, inBytes, inChars, 1, (int) Math.min(inChars, Integer.MAX_VALUE));
     }
 }
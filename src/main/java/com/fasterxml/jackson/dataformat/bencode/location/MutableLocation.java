@@ -1,12 +1,12 @@
 package com.fasterxml.jackson.dataformat.bencode.location;
 
 public class MutableLocation extends Location {
-    public void advance(int bytes, int chars) {
+    public void advance(long bytes, long chars) {
         inBytes += bytes;
         inChars += chars;
     }
 
-    public void advance(int bytes) {
+    public void advance(long bytes) {
         inBytes += bytes;
         inChars += bytes;
     }
@@ -0,0 +1,98 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.types.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestArchiveIndex {
+    private static final String SECOND = "d4:named5:first3:Ann4:last3:Leee4:tagsl1:a1:bee";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void append(File file, String... records) throws IOException {
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            for (String record : records) {
+                out.write(record.getBytes(BEncodeFormat.LATIN_1));
+            }
+        }
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        File archive = folder.newFile("records.benc");
+        append(archive, TestUtils.TUTORIAL_EXAMPLE_ENCODED, SECOND, "i42e");
+        BEncodeFactory factory = new BEncodeFactory();
+        BEncodeArchiveIndex index = BEncodeArchiveIndex.open(factory, archive,
+                JsonPointer.compile("/name/last"), JsonPointer.compile("/tags/1"));
+        assertThat(index.size(), is(3));
+        int first = TestUtils.TUTORIAL_EXAMPLE_ENCODED.length();
+        assertThat(index.getRecordOffset(1), is((long) first));
+        assertThat(index.getRecordOffset(2), is((long) first + SECOND.length()));
+        assertThat(index.getIndexedLength(), is(archive.length()));
+        assertThat(index.getPathOffset(2, 0), is(-1L));
+        assertThat(index.getPathOffset(0, 1), is(-1L));
+        assertThat(index.openPath(0, 1), nullValue());
+
+        ObjectMapper mapper = new BEncodeMapper();
+        try (BEncodeMappedParser p = index.openRecord(0)) {
+            assertThat(mapper.readValue(p, User.class).getName().getFirst(), is("Joe"));
+        }
+        try (BEncodeMappedParser p = index.openPath(1, 0)) {
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(p.getText(), is("Lee"));
+        }
+        try (BEncodeMappedParser p = index.openPath(1, 1)) {
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(p.getText(), is("b"));
+        }
+        try (BEncodeMappedParser p = index.openRecord(2)) {
+            assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+            assertThat(p.getIntValue(), is(42));
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        File archive = folder.newFile("records.benc");
+        append(archive, SECOND);
+        BEncodeFactory factory = new BEncodeFactory();
+        BEncodeArchiveIndex index = BEncodeArchiveIndex.open(factory, archive, JsonPointer.compile("/name/first"));
+        assertThat(index.size(), is(1));
+
+        // the last record is still being written
+        append(archive, "i1e", SECOND, "d4:name");
+        assertThat(index.update(), is(2));
+        assertThat(index.size(), is(3));
+        assertThat(index.getIndexedLength(), is(archive.length() - 7));
+
+        append(archive, "d5:first2:Boee");
+        assertThat(index.update(), is(1));
+        assertThat(index.update(), is(0));
+
+        BEncodeArchiveIndex reopened = BEncodeArchiveIndex.open(factory, archive);
+        assertThat(reopened.size(), is(4));
+        assertThat(reopened.getPaths(), is(index.getPaths()));
+        for (int i = 0; i < 4; i++) {
+            assertThat(reopened.getRecordOffset(i), is(index.getRecordOffset(i)));
+            assertThat(reopened.getPathOffset(i, 0), is(index.getPathOffset(i, 0)));
+        }
+        try (BEncodeMappedParser p = reopened.openPath(3, 0)) {
+            p.nextToken();
+            assertThat(p.getText(), is("Bo"));
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.bencode.types.Animal;
+import com.fasterxml.jackson.dataformat.bencode.types.RawInfoTorrent;
 import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import com.fasterxml.jackson.dataformat.bencode.types.TorrentSummary;
 import com.fasterxml.jackson.dataformat.bencode.types.User;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import sun.nio.cs.StandardCharsets;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
@@ -22,6 +37,9 @@ import static org.junit.Assert.assertThrows;
 public class TestFullDataBindingRead {
     private ObjectMapper underTest;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void startUp() throws IOException{
         underTest = new BEncodeMapper();
@@ -55,6 +73,148 @@ public class TestFullDataBindingRead {
         assertThat(ubuntu.getInfo().getPieces().length, is(35320));
     }
 
+    @Test
+    public void testIgnoredFieldsAreSkippedNotRead() throws Exception{
+        File file = new File("src/test/resources/ubuntu-13.10-desktop-amd64.iso.torrent");
+        final long[] bytesRead = new long[1];
+        InputStream in = new FilterInputStream(new FileInputStream(file)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException{
+                int n = super.read(b, off, len);
+                bytesRead[0] += Math.max(n, 0);
+                return n;
+            }
+        };
+        TorrentSummary summary = underTest.readValue(in, TorrentSummary.class);
+        assertThat(summary.getAnnounce(), is("http://torrent.ubuntu.com:6969/announce"));
+        assertThat(summary.getInfo().getName(), is("ubuntu-13.10-desktop-amd64.iso"));
+        assertThat(summary.getInfo().getPieceLength(), is(524288));
+        // most of the 35320 bytes of pieces are skipped on the underlying stream
+        assertThat(bytesRead[0] < file.length() - 20000, is(true));
+        assertThat(underTest.readValue(file, TorrentSummary.class).getInfo().getPieceLength(), is(524288));
+    }
+
+    @Test
+    public void testRawInfoValue() throws Exception{
+        File file = new File("src/test/resources/ubuntu-13.10-desktop-amd64.iso.torrent");
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        // info is the last key, its value runs up to the final end marker
+        int start = new String(content, "ISO-8859-1").indexOf("4:infod") + 6;
+        byte[] info = Arrays.copyOfRange(content, start, content.length - 1);
+
+        RawInfoTorrent fromStream = underTest.readValue(new FileInputStream(file), RawInfoTorrent.class);
+        assertThat(fromStream.getAnnounce(), is("http://torrent.ubuntu.com:6969/announce"));
+        assertThat(fromStream.getInfo(), is(info));
+        assertThat(underTest.readValue(content, RawInfoTorrent.class).getInfo(), is(info));
+        assertThat(new BEncodeMapper(new BEncodeFactory().setMapFileInput(true))
+                .readValue(file, RawInfoTorrent.class).getInfo(), is(info));
+    }
+
+    @Test
+    public void testReaderAtPath() throws Exception{
+        File file = new File("src/test/resources/ubuntu-13.10-desktop-amd64.iso.torrent");
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        ObjectReader reader = underTest.readerFor(String.class).at("/info/name");
+        assertThat(reader, instanceOf(BEncodeObjectReader.class));
+        assertThat(reader.<String>readValue(content), is("ubuntu-13.10-desktop-amd64.iso"));
+        assertThat(reader.<String>readValue(new FileInputStream(file)), is("ubuntu-13.10-desktop-amd64.iso"));
+        assertThat(underTest.readerFor(Long.class).at("/info/piece length").<Long>readValue(content), is(524288L));
+        assertThat(underTest.readerFor(String.class).at("/announce-list/1/0").<String>readValue(content),
+                is("http://ipv6.torrent.ubuntu.com:6969/announce"));
+    }
+
+    @Test
+    public void testReadListInParallel() throws Exception{
+        StringBuilder list = new StringBuilder("l");
+        for (int i = 0; i < 2000; i++) {
+            list.append("d6:gender4:MALE4:named5:first").append(Integer.toString(i).length()).append(':').append(i)
+                    .append("e8:verified").append(i % 2 == 0 ? "4:true" : "5:false").append('e');
+        }
+        byte[] data = list.append('e').toString().getBytes("ISO-8859-1");
+        BEncodeMapper mapper = new BEncodeMapper();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<User> users = mapper.readListInParallel(data, User.class, pool);
+            assertThat(users.size(), is(2000));
+            for (int i = 0; i < users.size(); i++) {
+                assertThat(users.get(i).getName().getFirst(), is(Integer.toString(i)));
+                assertThat(users.get(i).isVerified(), is(i % 2 == 0));
+            }
+            File file = folder.newFile("users.benc");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(data);
+            }
+            List<User> mapped = mapper.readListInParallel(file, User.class, pool);
+            assertThat(mapped.size(), is(2000));
+            assertThat(mapped.get(1999).getName().getFirst(), is("1999"));
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(mapper.streamList(data, User.class).filter(User::isVerified).count(), is(1000L));
+        assertThat(mapper.readListInParallel("le".getBytes("ISO-8859-1"), User.class).size(), is(0));
+        assertThrows(JsonParseException.class, () -> mapper.readListInParallel("i1e".getBytes("ISO-8859-1"), User.class));
+    }
+
+    @Test
+    public void testStreamListOpensParserPerRange() throws Exception{
+        File file = folder.newFile("numbers.benc");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("li1ei2ei3ei4ei5ee".getBytes("ISO-8859-1"));
+        }
+        final AtomicInteger opened = new AtomicInteger();
+        BEncodeMapper mapper = new BEncodeMapper(new BEncodeFactory() {
+            @Override
+            public BEncodeMappedParser createMappedParser(File f, long offset) throws IOException{
+                opened.incrementAndGet();
+                return super.createMappedParser(f, offset);
+            }
+        });
+        try (Stream<Integer> stream = mapper.streamList(file, Integer.class)) {
+            // the scan for element offsets opens one parser
+            assertThat(opened.get(), is(1));
+            Iterator<Integer> it = stream.iterator();
+            int sum = 0;
+            while (it.hasNext()) {
+                sum += it.next();
+            }
+            assertThat(sum, is(15));
+            assertThat(opened.get(), is(2));
+        }
+        try (Stream<Integer> stream = mapper.streamList(file, Integer.class)) {
+            assertThat(stream.sequential().limit(2).collect(Collectors.toList()), is(Arrays.asList(1, 2)));
+        }
+    }
+
+    @Test
+    public void testInfoHashWhileBinding() throws Exception{
+        File file = new File("src/test/resources/ubuntu-13.10-desktop-amd64.iso.torrent");
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        int start = new String(content, "ISO-8859-1").indexOf("4:infod") + 6;
+        for (String algorithm : new String[]{"SHA-1", "SHA-256"}) {
+            byte[] expected = MessageDigest.getInstance(algorithm).digest(
+                    Arrays.copyOfRange(content, start, content.length - 1));
+            BEncodeFactory factory = new BEncodeFactory().setDigest(algorithm);
+            ObjectMapper mapper = new BEncodeMapper(factory);
+
+            BEncodeParserBase p = (BEncodeParserBase) factory.createParser(new FileInputStream(file));
+            assertThat(mapper.readValue(p, Torrent.class).getInfo().getPieceLength(), is(524288));
+            assertThat(algorithm, p.getDigest(), is(expected));
+
+            // info.pieces is skipped rather than read, and still digested
+            p = (BEncodeParserBase) factory.createParser(new FileInputStream(file));
+            mapper.readValue(p, TorrentSummary.class);
+            assertThat(algorithm, p.getDigest(), is(expected));
+
+            p = (BEncodeParserBase) factory.createParser(content);
+            mapper.readValue(p, Torrent.class);
+            assertThat(algorithm, p.getDigest(), is(expected));
+
+            p = factory.createMappedParser(file);
+            mapper.readValue(p, TorrentSummary.class);
+            assertThat(algorithm, p.getDigest(), is(expected));
+        }
+    }
+
     @Test
     public void testReadUnknownField() throws IOException{
         ObjectMapper mapper=new BEncodeMapper();
@@ -1,6 +1,10 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
 import com.fasterxml.jackson.dataformat.bencode.types.User;
 import org.junit.Before;
@@ -8,8 +12,14 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -39,6 +49,71 @@ public class TestFullDataBindingWrite {
         assertThat(out.toString("ISO-8859-1"), is(TestUtils.TUTORIAL_EXAMPLE_ENCODED));
     }
 
+    @Test
+    public void testPreEncodedPropertyNames() throws Exception {
+        JsonSerializer<Object> serializer = underTest.getSerializerProviderInstance().findValueSerializer(User.class);
+        int n = 0;
+        for (Iterator<PropertyWriter> it = serializer.properties(); it.hasNext(); n++) {
+            assertThat(it.next() instanceof BEncodePropertyWriter, is(true));
+        }
+        assertThat(n, is(4));
+
+        BEncodeSerializedName name = new BEncodeSerializedName("\u00e1rv\u00edz");
+        assertThat(new String(name.asPrefixedUTF8(), "UTF-8"), is("7:\u00e1rv\u00edz"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator g = underTest.getFactory().createGenerator(out);
+        g.writeStartObject();
+        g.writeFieldName(new BEncodeSerializedName("a"));
+        g.writeNumber(1);
+        g.writeFieldName(new SerializedString("b"));
+        g.writeNumber(2);
+        g.writeFieldName(name);
+        g.writeNumber(3);
+        g.writeEndObject();
+        g.close();
+        assertThat(out.toString("UTF-8"), is("d1:ai1e1:bi2e7:\u00e1rv\u00edzi3ee"));
+    }
+
+    @Test
+    public void testBatchRoundTrip() throws Exception {
+        BEncodeMapper mapper = new BEncodeMapper();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            User u = new User();
+            User.Name un = new User.Name();
+            un.setFirst("user" + i);
+            u.setName(un);
+            u.setGender(i % 2 == 0 ? User.Gender.MALE : User.Gender.FEMALE);
+            users.add(u);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<byte[]> encoded = mapper.writeBatch(users, executor, 3);
+            assertThat(encoded.size(), is(500));
+            for (int i = 0; i < 500; i += 97) {
+                assertThat(encoded.get(i), is(mapper.writeValueAsBytes(users.get(i))));
+            }
+            List<User> decoded = mapper.readBatch(encoded, User.class, executor, 3);
+            List<ByteBuffer> direct = new ArrayList<>();
+            for (byte[] e : encoded) {
+                ByteBuffer b = ByteBuffer.allocateDirect(e.length + 1);
+                b.put((byte) 'x').put(e).flip();
+                b.position(1);
+                direct.add(b);
+            }
+            List<User> fromBuffers = mapper.readBufferBatch(direct, User.class, executor, 2);
+            for (int i = 0; i < 500; i++) {
+                assertThat(decoded.get(i).getName().getFirst(), is("user" + i));
+                assertThat(decoded.get(i).getGender(), is(users.get(i).getGender()));
+                assertThat(fromBuffers.get(i).getName().getFirst(), is("user" + i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(mapper.readBatch(mapper.writeBatch(users.subList(0, 3)), User.class).get(2).getName().getFirst(),
+                is("user2"));
+    }
+
     @Test
     public void testWriteValueToStreamComplex() throws Exception {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
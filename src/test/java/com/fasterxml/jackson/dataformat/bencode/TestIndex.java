@@ -0,0 +1,88 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestIndex {
+
+    @Test
+    public void testNavigation() throws Exception {
+        BEncodeIndex index = BEncodeIndex.build(TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes(BEncodeFormat.LATIN_1));
+        assertThat(index.getType(BEncodeIndex.ROOT), is(START_OBJECT));
+        assertThat(index.getChildCount(BEncodeIndex.ROOT), is(4));
+        assertThat(index.getString(index.getKey(BEncodeIndex.ROOT, 1)), is("name"));
+        assertThat(index.getString(index.getValue(BEncodeIndex.ROOT, "gender")), is("MALE"));
+        int name = index.getValue(BEncodeIndex.ROOT, "name");
+        assertThat(index.getType(name), is(START_OBJECT));
+        assertThat(index.getString(index.getValue(name, "last")), is("Sixpack"));
+        assertThat(index.getBinary(index.getValue(BEncodeIndex.ROOT, "userImage")), is(TestUtils.BINARY_DATA));
+        assertThat(index.getString(index.at(JsonPointer.compile("/name/first"))), is("Joe"));
+        assertThat(index.getValue(BEncodeIndex.ROOT, "age"), is(-1));
+        assertThat(index.getValue(name, "a"), is(-1));
+        assertThat(index.getValue(name, "z"), is(-1));
+        assertThat(index.at(JsonPointer.compile("/name/first/x")), is(-1));
+    }
+
+    @Test
+    public void testListsAndIntegers() throws Exception {
+        BEncodeIndex index = BEncodeIndex.build("d1:ali0ei-42ei3000000000ei123456789012345678901234567890eee".getBytes(BEncodeFormat.LATIN_1));
+        int list = index.getValue(BEncodeIndex.ROOT, "a");
+        assertThat(index.getChildCount(list), is(4));
+        assertThat(index.getInt(index.getElement(list, 0)), is(0));
+        assertThat(index.getInt(index.getElement(list, 1)), is(-42));
+        assertThat(index.getNumberType(index.getElement(list, 2)), is(JsonParser.NumberType.LONG));
+        assertThat(index.getLong(index.getElement(list, 2)), is(3000000000L));
+        assertThat(index.getNumberType(index.getElement(list, 3)), is(JsonParser.NumberType.BIG_INTEGER));
+        assertThat(index.getBigInteger(index.getElement(list, 3)), is(new BigInteger("123456789012345678901234567890")));
+        assertThat(index.getElement(list, 4), is(-1));
+        assertThat(index.at(JsonPointer.compile("/a/1")), is(index.getElement(list, 1)));
+        assertThat(index.getStart(list), is(4));
+        assertThat(index.getEnd(list), is(index.getEnd(BEncodeIndex.ROOT) - 1));
+    }
+
+    @Test
+    public void testUnsortedKeys() throws Exception {
+        BEncodeIndex index = BEncodeIndex.build("d1:ci3e1:ai1e1:bi2ee".getBytes(BEncodeFormat.LATIN_1));
+        assertThat(index.getInt(index.getValue(BEncodeIndex.ROOT, "a")), is(1));
+        assertThat(index.getInt(index.getValue(BEncodeIndex.ROOT, "b")), is(2));
+        assertThat(index.getInt(index.getValue(BEncodeIndex.ROOT, "c")), is(3));
+    }
+
+    @Test
+    public void testMatchesParser() throws Exception {
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        BEncodeIndex index = BEncodeIndex.build(ByteBuffer.wrap(content));
+        int info = index.getValue(BEncodeIndex.ROOT, "info");
+        assertThat(index.getLong(index.getValue(info, "length")), is(925892608L));
+        assertThat(index.getBinaryBuffer(index.getValue(info, "pieces")).remaining(), is(35320));
+
+        BEncodeParserBase p = (BEncodeParserBase) new BEncodeFactory().createParser(content);
+        while (p.nextToken() != FIELD_NAME || !"info".equals(p.getCurrentName())) ;
+        p.nextToken();
+        assertThat(index.getStart(info), is((int) p.getTokenLocation().getByteOffset()));
+        assertThat(index.getRawValue(info), is(p.readRawValue()));
+        p.close();
+    }
+
+    @Test
+    public void testInvalidInput() throws Exception {
+        for (String doc : new String[]{"", "d1:ai1e", "i1ei2e", "di1ei2ee", "d1:ae", "4:ab", "i-e", "x"}) {
+            try {
+                BEncodeIndex.build(doc.getBytes(BEncodeFormat.LATIN_1));
+                fail(doc);
+            } catch (JsonParseException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestMappedRead {
+    private static final File UBUNTU = new File("src/test/resources/ubuntu-13.10-desktop-amd64.iso.torrent");
+    private static final File GET_STARTED = new File("src/test/resources/GET-STARTED.torrent");
+
+    @Test
+    public void testMatchesArrayParser() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory();
+        for (File f : new File[]{UBUNTU, GET_STARTED}) {
+            Object expected = TestUtils.collectTokens(factory.createParser(
+                    TestUtils.readFileBinary("/" + f.getName())));
+            assertThat(TestUtils.collectTokens(factory.createMappedParser(f)), is(expected));
+        }
+    }
+
+    @Test
+    public void testSmallWindows() throws Exception {
+        BEncodeFactory defaultFactory = new BEncodeFactory();
+        Object expected = TestUtils.collectTokens(defaultFactory.createMappedParser(GET_STARTED));
+        // small windows force re-mapping, pieces are longer than any of these windows
+        for (int windowSize : new int[]{1, 7, 64, 4096}) {
+            BEncodeFactory factory = new BEncodeFactory().setMappedWindowSize(windowSize);
+            assertThat("window " + windowSize,
+                    TestUtils.collectTokens(factory.createMappedParser(GET_STARTED)), is(expected));
+        }
+    }
+
+    @Test
+    public void testBinaryBufferIsSliceOfFile() throws Exception {
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        BEncodeMappedParser p = new BEncodeFactory().createMappedParser(UBUNTU);
+        while (p.nextToken() != FIELD_NAME || !"pieces".equals(p.getCurrentName())) ;
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        ByteBuffer pieces = p.getBinaryBuffer();
+        assertThat(pieces.isDirect(), is(true));
+        assertThat(pieces.remaining(), is(35320));
+        assertThat(pieces.get(0), is(content[0x014f]));
+        assertThat(pieces.get(35319), is(content[0x014f + 35319]));
+        p.close();
+    }
+
+    @Test
+    public void testStreamingBinaryValue() throws Exception {
+        byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        byte[] pieces = Arrays.copyOfRange(content, 0x014f, 0x014f + 35320);
+        // pieces fit into the default window, but not into the small one
+        for (int windowSize : new int[]{BEncodeMappedParser.MAX_WINDOW_SIZE, 4096}) {
+            BEncodeFactory factory = new BEncodeFactory().setMappedWindowSize(windowSize);
+            BEncodeMappedParser p = factory.createMappedParser(UBUNTU);
+            while (p.nextToken() != FIELD_NAME || !"pieces".equals(p.getCurrentName())) ;
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(p.readBinaryValue(out), is(35320));
+            assertThat(out.toByteArray(), is(pieces));
+
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            InputStream in = p.getBinaryStream();
+            assertThat(in.skip(10), is(10L));
+            byte[] buf = new byte[1000];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                copy.write(buf, 0, n);
+            }
+            assertThat(copy.toByteArray(), is(Arrays.copyOfRange(pieces, 10, pieces.length)));
+            p.close();
+        }
+    }
+
+    @Test
+    public void testOffset() throws Exception {
+        // "d8:announce39:" precedes the announce url
+        JsonParser p = new BEncodeFactory().createMappedParser(UBUNTU, 11L);
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("http://torrent.ubuntu.com:6969/announce"));
+        assertThat(p.getTokenLocation().getByteOffset(), is(11L));
+        p.close();
+    }
+
+    @Test
+    public void testMapperUsesMappedFileInput() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setMapFileInput(true);
+        assertThat(factory.createParser(UBUNTU), instanceOf(BEncodeMappedParser.class));
+
+        Torrent ubuntu = new BEncodeMapper(factory).readValue(UBUNTU, Torrent.class);
+        assertThat(ubuntu.getAnnounce(), is("http://torrent.ubuntu.com:6969/announce"));
+        assertThat(ubuntu.getInfo().getPieces().length, is(35320));
+    }
+}
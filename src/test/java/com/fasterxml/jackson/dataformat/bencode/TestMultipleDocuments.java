@@ -0,0 +1,131 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.types.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestMultipleDocuments {
+    private static final String SECOND = "d6:gender6:FEMALE4:named5:first3:Ann4:last3:Leeee";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new BEncodeMapper();
+
+    private static byte[] concatenated(int copies) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < copies; i++) {
+            out.write(TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes(BEncodeFormat.LATIN_1));
+            out.write(SECOND.getBytes(BEncodeFormat.LATIN_1));
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertUsers(MappingIterator<User> it, int expected) throws Exception {
+        int n = 0;
+        while (it.hasNextValue()) {
+            User u = it.nextValue();
+            assertThat(u.getName().getFirst(), is(n % 2 == 0 ? "Joe" : "Ann"));
+            n++;
+        }
+        assertThat(n, is(expected));
+        it.close();
+    }
+
+    @Test
+    public void testReadValues() throws Exception {
+        byte[] data = concatenated(50);
+        assertUsers(mapper.readerFor(User.class).<User>readValues(data), 100);
+        assertUsers(mapper.readerFor(User.class).<User>readValues(new ByteArrayInputStream(data)), 100);
+        File file = folder.newFile("users.benc");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        assertUsers(new BEncodeMapper(new BEncodeFactory().setMapFileInput(true))
+                .readerFor(User.class).<User>readValues(file), 100);
+    }
+
+    @Test
+    public void testMixedRootValues() throws Exception {
+        MappingIterator<Object> it = mapper.readerFor(Object.class).readValues("i1e2:ab" + SECOND + "i-3e");
+        List<Object> values = it.readAll();
+        assertThat(values.size(), is(4));
+        assertThat(values.get(0), is((Object) 1));
+        assertThat(values.get(1), is((Object) "ab"));
+        assertThat(((Map<?, ?>) values.get(2)).get("gender"), is((Object) "FEMALE"));
+        assertThat(values.get(3), is((Object) (-3)));
+    }
+
+    @Test
+    public void testDocumentBoundaries() throws Exception {
+        byte[] data = concatenated(1);
+        BEncodeParserBase p = (BEncodeParserBase) new BEncodeFactory().createParser(new ByteArrayInputStream(data));
+        assertThat(p.getDocumentCount(), is(0));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        p.skipChildren();
+        assertThat(p.getDocumentCount(), is(1));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.getTokenLocation().getByteOffset(), is((long) TestUtils.TUTORIAL_EXAMPLE_ENCODED.length()));
+        assertThat(p.getDocumentCount(), is(1));
+        p.skipChildren();
+        assertThat(p.getDocumentCount(), is(2));
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testResetByteArrayParser() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory();
+        byte[] first = TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes(BEncodeFormat.LATIN_1);
+        byte[] second = ("xx" + SECOND).getBytes(BEncodeFormat.LATIN_1);
+        BEncodeByteArrayParser p = (BEncodeByteArrayParser) factory.createParser(first);
+        p.setCodec(mapper);
+        for (int i = 0; i < 3; i++) {
+            assertThat(p.readValueAs(User.class).getName().getFirst(), is("Joe"));
+            assertThat(p.nextToken(), nullValue());
+            assertThat(p.isClosed(), is(true));
+            p.reset(second, 2, second.length - 2);
+            assertThat(p.isClosed(), is(false));
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.getTokenLocation().getByteOffset(), is(0L));
+            assertThat(p.getDocumentCount(), is(0));
+            assertThat(p.readValueAs(User.class).getName().getLast(), is("Lee"));
+            // reset in the middle of a document
+            p.reset(first, 0, first.length);
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            p.reset(first, 0, first.length);
+        }
+    }
+
+    @Test
+    public void testTruncatedLastDocument() throws Exception {
+        JsonParser p = new BEncodeFactory().createParser(new ByteArrayInputStream(
+                (SECOND + "d6:gender").getBytes(BEncodeFormat.LATIN_1)));
+        MappingIterator<User> it = mapper.readerFor(User.class).readValues(p);
+        assertThat(it.nextValue().getName().getFirst(), is("Ann"));
+        try {
+            it.nextValue();
+            fail();
+        } catch (JsonEOFException e) {
+            // expected, unexpected EOF in the second document
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestNonBlockingRead {
+    protected BEncodeFactory bEncodeFactory = new BEncodeFactory();
+
+    @Test
+    public void testNotAvailableUntilTokenComplete() throws Exception {
+        JsonParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        ByteArrayFeeder feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+
+        feed(feeder, "d1");
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "0:0123");
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "456789i-12");
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("0123456789"));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "3");
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "e");
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getIntValue(), is(-123));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "e");
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feeder.endOfInput();
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testChunkedTorrentMatchesArrayParser() throws Exception {
+        byte[] torrent = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        List<Object> expected = TestUtils.collectTokens(bEncodeFactory.createParser(torrent));
+
+        for (int chunkSize : new int[]{1, 2, 3, 7, 64, 1000, torrent.length}) {
+            JsonParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+            ByteArrayFeeder feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+            List<Object> actual = new ArrayList<>();
+            int offset = 0;
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t == NOT_AVAILABLE) {
+                    if (offset < torrent.length) {
+                        int end = Math.min(offset + chunkSize, torrent.length);
+                        // copy, so slices of an earlier chunk can't be served by accident
+                        byte[] chunk = Arrays.copyOfRange(torrent, offset, end);
+                        feeder.feedInput(chunk, 0, chunk.length);
+                        offset = end;
+                    } else {
+                        feeder.endOfInput();
+                    }
+                    continue;
+                }
+                TestUtils.collectToken(p, actual);
+            }
+            assertThat("chunk size " + chunkSize, actual, is(expected));
+        }
+    }
+
+    @Test
+    public void testChunkedDigest() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setDigest("SHA-1");
+        byte[] torrent = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        BEncodeParserBase expected = (BEncodeParserBase) factory.createParser(torrent);
+        while (expected.nextToken() != null) ;
+        assertThat(expected.getDigest().length, is(20));
+
+        for (int chunkSize : new int[]{1, 7, 1000, torrent.length}) {
+            BEncodeNonBlockingParser p = factory.createNonBlockingByteBufferParser();
+            ByteBuffer direct = ByteBuffer.allocateDirect(chunkSize);
+            int offset = 0;
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t == NOT_AVAILABLE) {
+                    if (offset < torrent.length) {
+                        int end = Math.min(offset + chunkSize, torrent.length);
+                        // the same direct buffer is refilled, as the parser copies it into a reused array
+                        direct.clear();
+                        direct.put(torrent, offset, end - offset).flip();
+                        p.feedInput(direct);
+                        offset = end;
+                    } else {
+                        p.endOfInput();
+                    }
+                }
+            }
+            assertThat("chunk size " + chunkSize, p.getDigest(), is(expected.getDigest()));
+        }
+    }
+
+    @Test
+    public void testDirectByteBufferFeed() throws Exception {
+        JsonParser p = bEncodeFactory.createNonBlockingByteBufferParser();
+        ByteBufferFeeder feeder = (ByteBufferFeeder) p.getNonBlockingInputFeeder();
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put("l4:spam".getBytes("ISO-8859-1")).flip();
+        feeder.feedInput(direct);
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("spam"));
+        direct.clear();
+        direct.put("e".getBytes("ISO-8859-1")).flip();
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feeder.feedInput(direct);
+        assertThat(p.nextToken(), is(END_ARRAY));
+        assertThat(p.getCurrentLocation().getByteOffset(), is(8L));
+    }
+
+    @Test
+    public void testTruncatedInput() throws Exception {
+        JsonParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        ByteArrayFeeder feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+        feed(feeder, "l5:ab");
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feeder.endOfInput();
+        try {
+            p.nextToken();
+            fail("should fail on truncated string");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage(), e.getMessage().contains("unexpected EOF"), is(true));
+        }
+    }
+
+    @Test
+    public void testSkipChildren() throws Exception {
+        JsonParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        ByteArrayFeeder feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+        feed(feeder, "d4:infod6:lengthi1e4:pathl1:aee4:name4:spame");
+        feeder.endOfInput();
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        p.skipChildren();
+        assertThat(p.currentToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("name"));
+
+        // the skip continues as the rest of the container is fed
+        p = bEncodeFactory.createNonBlockingByteArrayParser();
+        feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+        feed(feeder, "d4:infod6:lengthi1");
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        p.skipChildren();
+        assertThat(p.currentToken(), is(NOT_AVAILABLE));
+        feed(feeder, "2e4:pathl1:");
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(feeder, "aee4:name4:spame");
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.getParsingContext().inObject(), is(true));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("name"));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.nextToken(), is(END_OBJECT));
+        feeder.endOfInput();
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testRawValue() throws Exception {
+        String info = "d6:lengthi-12e4:pathl1:a0:ee";
+        BEncodeNonBlockingParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        feed(p, "d4:info" + info + "4:name4:spame");
+        p.endOfInput();
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        ByteBuffer raw = p.readRawValue();
+        assertThat(new String(raw.array(), 0, raw.remaining(), "ISO-8859-1"), is(info));
+        assertThat(p.getRawValueOffset(), is(7L));
+        assertThat(p.currentToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        raw = p.readRawValue();
+        assertThat(new String(raw.array(), 0, raw.remaining(), "ISO-8859-1"), is("4:spam"));
+    }
+
+    @Test
+    public void testRawValueSplitBetweenChunks() throws Exception {
+        BEncodeNonBlockingParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        feed(p, "d4:infod6:lengthi");
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        try {
+            p.readRawValue();
+            fail("should reject a dictionary continuing in the next chunk");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage(), e.getMessage().contains("whole dictionary in one chunk"), is(true));
+        }
+        // nothing was consumed, the parser goes on as the rest is fed
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("length"));
+        assertThat(p.nextToken(), is(NOT_AVAILABLE));
+        feed(p, "1ee1:xl2:abee");
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_ARRAY));
+        ByteBuffer raw = p.readRawValue();
+        assertThat(new String(raw.array(), 0, raw.remaining(), "ISO-8859-1"), is("l2:abe"));
+        assertThat(p.nextToken(), is(END_OBJECT));
+    }
+
+    @Test
+    public void testBindingIgnoresUnknownProperties() throws Exception {
+        ObjectMapper mapper = new BEncodeMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        JsonParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+        ByteArrayFeeder feeder = (ByteArrayFeeder) p.getNonBlockingInputFeeder();
+        feed(feeder, "d5:extrad1:xli1eee4:name4:spame");
+        feeder.endOfInput();
+        Named value = mapper.readValue(p, Named.class);
+        assertThat(value.name, is("spam"));
+    }
+
+    public static class Named {
+        public String name;
+    }
+
+    private static void feed(ByteArrayFeeder feeder, String s) throws Exception {
+        byte[] data = s.getBytes("ISO-8859-1");
+        feeder.feedInput(data, 0, data.length);
+    }
+}
@@ -0,0 +1,635 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestStreamingRead {
+    protected BEncodeFactory bEncodeFactory = new BEncodeFactory();
+
+    @Test
+    public void testByteArrayParserIsUsed() throws Exception {
+        assertThat(bEncodeFactory.createParser("i1e"), instanceOf(BEncodeByteArrayParser.class));
+        assertThat(bEncodeFactory.createParser(new byte[]{'i', '1', 'e'}), instanceOf(BEncodeByteArrayParser.class));
+    }
+
+    @Test
+    public void testTutorial() throws Exception {
+        JsonParser p = bEncodeFactory.createParser(TestUtils.TUTORIAL_EXAMPLE_ENCODED);
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("gender"));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("MALE"));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("name"));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("Joe"));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("userImage"));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getBinaryValue(), is(TestUtils.BINARY_DATA));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("false"));
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testStringsInListAfterOtherValues() throws Exception {
+        JsonParser p = bEncodeFactory.createParser("l3:fooi1eli2ee3:bare");
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.nextToken(), is(END_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("bar"));
+        assertThat(p.nextToken(), is(END_ARRAY));
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testIntegers() throws Exception {
+        JsonParser p = bEncodeFactory.createParser(
+                "li0ei-2147483648ei2147483648ei9223372036854775807ei-9223372036854775809ee");
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getNumberType(), is(JsonParser.NumberType.INT));
+        assertThat(p.getIntValue(), is(0));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getNumberType(), is(JsonParser.NumberType.INT));
+        assertThat(p.getIntValue(), is(Integer.MIN_VALUE));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getNumberType(), is(JsonParser.NumberType.LONG));
+        assertThat(p.getLongValue(), is(2147483648L));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getNumberType(), is(JsonParser.NumberType.LONG));
+        assertThat(p.getLongValue(), is(Long.MAX_VALUE));
+        assertThat(p.getText(), is("9223372036854775807"));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getNumberType(), is(JsonParser.NumberType.BIG_INTEGER));
+        assertThat(p.getBigIntegerValue(), is(new BigInteger("-9223372036854775809")));
+        assertThat(p.nextToken(), is(END_ARRAY));
+    }
+
+    @Test
+    public void testIntegerTypesMatchOnAllPaths() throws Exception {
+        String input = "li7ei-0ei007ei-12345678901ei123456789012345678ei-9223372036854775808ei9223372036854775808e"
+                + "i000000000000000000000042ee";
+        byte[] data = input.getBytes("ISO-8859-1");
+        List<Object> expected = Arrays.<Object>asList(START_ARRAY, 7, 0, 7, -12345678901L, 123456789012345678L,
+                Long.MIN_VALUE, new BigInteger("9223372036854775808"), 42, END_ARRAY);
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            List<Object> actual = new ArrayList<>();
+            while (p.nextToken() != null) {
+                actual.add(p.getCurrentToken() == VALUE_NUMBER_INT ? p.getNumberValue() : p.getCurrentToken());
+            }
+            assertThat(actual, is(expected));
+        }
+    }
+
+    @Test
+    public void testSkipChildren() throws Exception {
+        byte[] data = "d1:ad1:bl3:xyzi-1ed1:ci2eee0:lee1:di4ee".getBytes("ISO-8859-1");
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.skipChildren().currentToken(), is(END_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.getCurrentName(), is("d"));
+            assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+            assertThat(p.getIntValue(), is(4));
+            assertThat(p.nextToken(), is(END_OBJECT));
+            assertThat(p.nextToken(), nullValue());
+        }
+        JsonParser p = bEncodeFactory.createParser("lli1e3:ab");
+        assertThat(p.nextToken(), is(START_ARRAY));
+        try {
+            p.skipChildren();
+            fail("should fail on truncated container");
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage(), e.getMessage().contains("exceeds end of input"), is(true));
+        }
+    }
+
+    @Test
+    public void testBinaryValueAsStream() throws Exception {
+        byte[] data = "l5:first6:second5:thirde".getBytes("ISO-8859-1");
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            assertThat(p.nextToken(), is(START_ARRAY));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(p.readBinaryValue(out), is(5));
+            assertThat(out.toString("ISO-8859-1"), is("first"));
+
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            InputStream in = ((BEncodeParserBase) p).getBinaryStream();
+            assertThat(in.read(), is((int) 's'));
+            byte[] rest = new byte[16];
+            assertThat(in.read(rest), is(5));
+            assertThat(new String(rest, 0, 5, "ISO-8859-1"), is("econd"));
+            assertThat(in.read(), is(-1));
+
+            // partly read values are skipped
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(((BEncodeParserBase) p).getBinaryStream().read(), is((int) 't'));
+            assertThat(p.nextToken(), is(END_ARRAY));
+        }
+    }
+
+    @Test
+    public void testRawValue() throws Exception {
+        byte[] data = "d1:ad1:bi12e1:cl2:xyee1:d3:foo1:ei-7ee".getBytes("ISO-8859-1");
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            BEncodeParserBase parser = (BEncodeParserBase) p;
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(raw(parser.readRawValue()), is("d1:bi12e1:cl2:xyee"));
+            assertThat(parser.getRawValueOffset(), is(4L));
+            assertThat(p.currentToken(), is(END_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(raw(parser.readRawValue()), is("3:foo"));
+            assertThat(parser.getRawValueOffset(), is(25L));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+            assertThat(raw(parser.readRawValue()), is("i-7e"));
+            assertThat(p.getTokenLocation().getByteOffset(), is(33L));
+            assertThat(p.nextToken(), is(END_OBJECT));
+            assertThat(p.getCurrentLocation().getByteOffset(), is(38L));
+        }
+    }
+
+    @Test
+    public void testRawValueOfReadString() throws Exception {
+        byte[] data = "l3:foo3:bare".getBytes("ISO-8859-1");
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            BEncodeParserBase parser = (BEncodeParserBase) p;
+            assertThat(p.nextToken(), is(START_ARRAY));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(p.getText(), is("foo"));
+            assertThat(raw(parser.readRawValue()), is("3:foo"));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            p.getBinaryValue();
+            assertThat(raw(parser.readRawValue()), is("3:bar"));
+            assertThat(p.nextToken(), is(END_ARRAY));
+        }
+    }
+
+    @Test
+    public void testDigestOfNestedPath() throws Exception {
+        // the first "b" list is not on the path, its parent is "x"
+        String input = "d1:ad1:xd1:bl1:1ee1:bl2:ok5:valueee1:bi1ee";
+        byte[] expected = MessageDigest.getInstance("MD5").digest("l2:ok5:valuee".getBytes("ISO-8859-1"));
+        BEncodeFactory factory = new BEncodeFactory().setDigest("MD5", "a", "b");
+        byte[] data = input.getBytes("ISO-8859-1");
+        for (JsonParser p : new JsonParser[]{factory.createParser(data),
+                factory.createParser(new ByteArrayInputStream(data))}) {
+            TestUtils.collectTokens(p);
+            assertThat(((BEncodeParserBase) p).getDigest(), is(expected));
+        }
+    }
+
+    @Test
+    public void testConcurrentStreamParsing() throws Exception {
+        final byte[] content = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        final List<Object> expected = TestUtils.collectTokens(bEncodeFactory.createParser(content));
+        final BEncodeFactory factory = new BEncodeFactory().setDigest("SHA-1");
+        final byte[] infoHash = MessageDigest.getInstance("SHA-1").digest(
+                Arrays.copyOfRange(content, new String(content, "ISO-8859-1").indexOf("4:infod") + 6, content.length - 1));
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> parses = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final int chunk = 1 + i % 97 * 131;
+                parses.add(executor.submit(() -> {
+                    InputStream in = new TrickleInputStream(content, chunk);
+                    JsonParser p = factory.createParser(in);
+                    assertThat(p.getInputSource(), sameInstance((Object) in));
+                    assertThat(TestUtils.collectTokens(p), is(expected));
+                    assertThat(((BEncodeParserBase) p).getDigest(), is(infoHash));
+                    return null;
+                }));
+            }
+            for (Future<?> parse : parses) {
+                parse.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Blocking stream returning at most {@code chunk} bytes per read, like a socket.
+     */
+    private static final class TrickleInputStream extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private int pos;
+
+        TrickleInputStream(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, chunk), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    @Test
+    public void testPathFilterMatchesFilteringDelegate() throws Exception {
+        String input = "d1:ad1:xd1:bl1:1ee1:bl2:ok5:valueee1:bi1e1:cld1:bi2eedeee";
+        byte[] data = input.getBytes("ISO-8859-1");
+        String[][] filters = {{"/a/b"}, {"/a/x/b/0", "/b"}, {"/c/0/b"}, {"/c/1"}, {"/a/b/1", "/c"},
+                {"/missing"}, {"/b/0"}};
+        for (String[] filter : filters) {
+            JsonPointer[] paths = new JsonPointer[filter.length];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = JsonPointer.compile(filter[i]);
+            }
+            for (boolean multiple : new boolean[]{true, false}) {
+                JsonParser delegate = new FilteringParserDelegate(bEncodeFactory.createParser(data),
+                        paths.length == 1 ? new JsonPointerBasedFilter(paths[0]) : _anyOf(paths),
+                        TokenFilter.Inclusion.ONLY_INCLUDE_ALL, multiple);
+                List<Object> expected = TestUtils.collectTokens(delegate);
+                BEncodeNonBlockingParser nonBlocking = bEncodeFactory.createNonBlockingByteArrayParser();
+                nonBlocking.feedInput(data, 0, data.length);
+                nonBlocking.endOfInput();
+                for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                        bEncodeFactory.createParser(new ByteArrayInputStream(data)), nonBlocking}) {
+                    ((BEncodeParserBase) p).setPathFilter(multiple, paths);
+                    assertThat(Arrays.toString(filter) + " " + multiple, TestUtils.collectTokens(p), is(expected));
+                }
+                // skipped values spanning chunks
+                for (int chunkSize : new int[]{1, 3, 7}) {
+                    BEncodeNonBlockingParser p = bEncodeFactory.createNonBlockingByteArrayParser();
+                    p.setPathFilter(multiple, paths);
+                    assertThat(Arrays.toString(filter) + " " + multiple + " chunk size " + chunkSize,
+                            _collectFedTokens(p, data, chunkSize), is(expected));
+                }
+            }
+        }
+    }
+
+    private static List<Object> _collectFedTokens(BEncodeNonBlockingParser p, byte[] data, int chunkSize)
+            throws Exception {
+        List<Object> tokens = new ArrayList<>();
+        int offset = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != null) {
+            if(t != NOT_AVAILABLE){
+                TestUtils.collectToken(p, tokens);
+            } else if(offset < data.length){
+                int end = Math.min(offset + chunkSize, data.length);
+                p.feedInput(Arrays.copyOfRange(data, offset, end), 0, end - offset);
+                offset = end;
+            } else {
+                p.endOfInput();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Filter matching any of the paths, what the native filter does with several paths.
+     */
+    private static TokenFilter _anyOf(final JsonPointer... paths){
+        return new TokenFilter() {
+            @Override
+            public TokenFilter includeProperty(String name){
+                List<JsonPointer> tails = new ArrayList<>();
+                for (JsonPointer path : paths) {
+                    if(path.matchesProperty(name)){
+                        tails.add(path.tail());
+                    }
+                }
+                return _next(tails);
+            }
+
+            @Override
+            public TokenFilter includeElement(int index){
+                List<JsonPointer> tails = new ArrayList<>();
+                for (JsonPointer path : paths) {
+                    if(path.matchesElement(index)){
+                        tails.add(path.tail());
+                    }
+                }
+                return _next(tails);
+            }
+
+            private TokenFilter _next(List<JsonPointer> tails){
+                for (JsonPointer tail : tails) {
+                    if(tail.matches()){
+                        return TokenFilter.INCLUDE_ALL;
+                    }
+                }
+                return tails.isEmpty() ? null : _anyOf(tails.toArray(new JsonPointer[0]));
+            }
+
+            @Override
+            protected boolean _includeScalar(){
+                return false;
+            }
+        };
+    }
+
+    private static String raw(ByteBuffer buffer) throws Exception {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, "ISO-8859-1");
+    }
+
+    @Test
+    public void testInvalidInput() throws Exception {
+        assertFails("d3:fooe", "missing value for dictionary key");
+        assertFails("di1ei2ee", "expected dictionary key");
+        assertFails("l5:abce", "exceeds end of input");
+        assertFails("li12", "unexpected EOF in integer");
+        assertFails("li1x2ee", "expected digit or 'e'");
+        assertFails("li1-2ee", "expected digit or 'e'");
+        assertFails("li-ee", "expected digit");
+        assertFails("ll", "unexpected EOF");
+        assertFails("e", "unexpected end marker");
+    }
+
+    @Test
+    public void testLocation() throws Exception {
+        JsonParser p = bEncodeFactory.createParser("xxd3:fooi42ee".getBytes("ISO-8859-1"), 2, 11);
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getTokenLocation().getByteOffset(), is(6L));
+        assertThat(p.getCurrentLocation().getByteOffset(), is(10L));
+    }
+
+    @Test
+    public void testStreamParserNamesAndValues() throws Exception {
+        JsonParser p = bEncodeFactory.createParser(new ByteArrayInputStream(
+                "d6:lengthi-42e4:pathl3:foo3:bare5:piecei-9223372036854775809ee".getBytes("ISO-8859-1")));
+        assertThat(p, instanceOf(BEncodeAltParser.class));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("length"));
+        assertThat(p.getText(), is("length"));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getCurrentName(), is("length"));
+        assertThat(p.getIntValue(), is(-42));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.getCurrentName(), is("path"));
+        // first string is never read and has to be skipped
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getText(), is("bar"));
+        assertThat(p.nextToken(), is(END_ARRAY));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("piece"));
+        assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        assertThat(p.getBigIntegerValue(), is(new BigInteger("-9223372036854775809")));
+        assertThat(p.nextToken(), is(END_OBJECT));
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testNamesAreCanonicalizedAcrossParsers() throws Exception {
+        String first = firstName(bEncodeFactory.createParser("d12:piece lengthi1ee"));
+        assertThat(first, is("piece length"));
+        assertThat(firstName(bEncodeFactory.createParser("d12:piece lengthi2ee")), sameInstance(first));
+        assertThat(firstName(bEncodeFactory.createParser(new ByteArrayInputStream(
+                "d12:piece lengthi3ee".getBytes("ISO-8859-1")))), sameInstance(first));
+    }
+
+    @Test
+    public void testNamesAreUtf8() throws Exception {
+        byte[] utf8 = "d2:\u00e9i1ee".getBytes("UTF-8");
+        assertThat(firstName(bEncodeFactory.createParser(utf8)), is("\u00e9"));
+        assertThat(firstName(bEncodeFactory.createParser(new ByteArrayInputStream(utf8))), is("\u00e9"));
+    }
+
+    @Test
+    public void testRawKeyBytes() throws Exception {
+        // 20-byte info-hash keys of a scrape response aren't valid UTF-8
+        byte[] hash = new byte[20];
+        for (int i = 0; i < hash.length; i++) {
+            hash[i] = (byte) (0xE0 + i);
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write("d20:".getBytes("ISO-8859-1"));
+        data.write(hash);
+        data.write("i1ee".getBytes("ISO-8859-1"));
+        byte[] bytes = data.toByteArray();
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(bytes),
+                bEncodeFactory.createParser(new ByteArrayInputStream(bytes))}) {
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            assertThat(p.getBinaryValue(), is(hash));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(p.readBinaryValue(out), is(20));
+            assertThat(out.toByteArray(), is(hash));
+            assertThat(p.nextToken(), is(VALUE_NUMBER_INT));
+        }
+    }
+
+    @Test
+    public void testTruncatedStringIsNotPreallocated() throws Exception {
+        for (boolean binary : new boolean[]{false, true}) {
+            JsonParser p = bEncodeFactory.createParser(new ByteArrayInputStream("l2000000000:xe".getBytes("ISO-8859-1")));
+            assertThat(p.nextToken(), is(START_ARRAY));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            try {
+                if (binary) {
+                    p.getBinaryValue();
+                } else {
+                    p.getText();
+                }
+                fail("should fail on truncated string");
+            } catch (JsonParseException e) {
+                assertThat(e.getMessage(), e.getMessage().contains("exceeds end of input"), is(true));
+            }
+        }
+    }
+
+    @Test
+    public void testMaxStringLength() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setMaxStringLength(4);
+        for (String input : new String[]{"l4:spame", "d4:spami1ee"}) {
+            byte[] data = input.getBytes("ISO-8859-1");
+            assertThat(TestUtils.collectTokens(factory.createParser(new ByteArrayInputStream(data))),
+                    is(TestUtils.collectTokens(factory.createParser(data))));
+        }
+        for (String input : new String[]{"l5:spamse", "d5:spamsi1ee", "l99999999999999999999999:e"}) {
+            byte[] data = input.getBytes("ISO-8859-1");
+            assertFails(factory.createParser(data), "string length exceeds maximum of 4 bytes");
+            assertFails(factory.createParser(new ByteArrayInputStream(data)), "string length exceeds maximum of 4 bytes");
+        }
+        // default limit still guards against prefixes that don't fit into an int
+        assertFails(bEncodeFactory.createParser(new ByteArrayInputStream("2147483648:".getBytes("ISO-8859-1"))),
+                "string length exceeds maximum");
+    }
+
+    @Test
+    public void testLargeValueWithinDefaultLimits() throws Exception {
+        // larger than Jackson's default limit for JSON strings, e.g. the pieces of a multi-GB torrent
+        int len = 25_000_000;
+        byte[] prefix = ("l" + len + ":").getBytes("ISO-8859-1");
+        byte[] data = Arrays.copyOf(prefix, prefix.length + len + 1);
+        data[data.length - 1] = 'e';
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            assertThat(p.nextToken(), is(START_ARRAY));
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            assertThat(p.getBinaryValue().length, is(len));
+            assertThat(p.nextToken(), is(END_ARRAY));
+        }
+    }
+
+    @Test
+    public void testParsingContext() throws Exception {
+        byte[] data = "d1:ad1:bl3:xyzi-1ed1:ci2eeee1:dli4eli5eeee".getBytes("ISO-8859-1");
+        List<String> expected = Arrays.asList("", "/a", "/a", "/a/b", "/a/b", "/a/b/0", "/a/b/1", "/a/b/2",
+                "/a/b/2/c", "/a/b/2/c", "/a/b/2", "/a/b", "/a", "/d", "/d", "/d/0", "/d/1", "/d/1/0", "/d/1", "/d", "");
+        for (JsonParser p : new JsonParser[]{bEncodeFactory.createParser(data),
+                bEncodeFactory.createParser(new ByteArrayInputStream(data))}) {
+            List<String> paths = new ArrayList<>();
+            while (p.nextToken() != null) {
+                paths.add(p.getParsingContext().pathAsPointer().toString());
+            }
+            assertThat(paths, is(expected));
+        }
+        JsonParser p = bEncodeFactory.createParser(data);
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.nextToken(), is(START_OBJECT));
+        assertThat(p.getCurrentName(), is("a"));
+        Object nested = p.getParsingContext();
+        p.skipChildren();
+        assertThat(p.getCurrentName(), is("a"));
+        assertThat(p.nextToken(), is(FIELD_NAME));
+        assertThat(p.getCurrentName(), is("d"));
+        assertThat(p.getParsingContext().getEntryCount(), is(2));
+        assertThat(p.nextToken(), is(START_ARRAY));
+        // contexts are reused per level
+        assertThat(p.getParsingContext(), sameInstance(nested));
+        assertThat(p.getParsingContext().inArray(), is(true));
+    }
+
+    @Test
+    public void testReadConstraints() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setReadConstraints(BEncodeReadConstraints.builder()
+                .maxNestingDepth(2)
+                .maxNumberLength(4)
+                .maxDocumentLength(12)
+                .build());
+        assertThat(factory.getMaxStringLength(), is(Integer.MAX_VALUE));
+        for (String input : new String[]{"lli1eee", "i-999e", "d1:a3:xyze", "l2:abe3:xyzi1234e"}) {
+            byte[] data = input.getBytes("ISO-8859-1");
+            assertThat(TestUtils.collectTokens(factory.createParser(new ByteArrayInputStream(data))),
+                    is(TestUtils.collectTokens(bEncodeFactory.createParser(data))));
+            assertThat(TestUtils.collectTokens(factory.createParser(data)),
+                    is(TestUtils.collectTokens(bEncodeFactory.createParser(data))));
+        }
+        String[][] failing = {
+                {"llleee", "nesting depth exceeds maximum of 2"},
+                {"i12345e", "integer length exceeds maximum of 4 characters"},
+                {"li-1234ee", "integer length exceeds maximum of 4 characters"},
+                {"l9:abcdefghie", "document length exceeds maximum of 12 bytes"},
+                {"li1ei2ei3ei4ee", "document length exceeds maximum of 12 bytes"},
+        };
+        for (String[] f : failing) {
+            byte[] data = f[0].getBytes("ISO-8859-1");
+            assertFails(factory.createParser(data), f[1]);
+            assertFails(factory.createParser(new ByteArrayInputStream(data)), f[1]);
+        }
+        // checked while skipping too
+        for (String[] f : new String[][]{
+                {"llleee", "nesting depth exceeds maximum of 2"},
+                {"li1ei2ei3ei4ee", "document length exceeds maximum of 12 bytes"}}) {
+            JsonParser p = factory.createParser(new ByteArrayInputStream(f[0].getBytes("ISO-8859-1")));
+            assertThat(p.nextToken(), is(START_ARRAY));
+            try {
+                p.skipChildren();
+                fail("should fail with " + f[1]);
+            } catch (JsonParseException e) {
+                assertThat(e.getMessage(), e.getMessage().contains(f[1]), is(true));
+            }
+        }
+    }
+
+    private static String firstName(JsonParser p) throws Exception {
+        p.nextToken();
+        p.nextToken();
+        String name = p.getCurrentName();
+        // names only go to the shared table once the parser is closed
+        while (p.nextToken() != null) ;
+        return name;
+    }
+
+    private void assertFails(String input, String message) throws Exception {
+        assertFails(bEncodeFactory.createParser(input), message);
+        assertFails(bEncodeFactory.createParser(new ByteArrayInputStream(input.getBytes("ISO-8859-1"))), message);
+    }
+
+    private static void assertFails(JsonParser p, String message) throws Exception {
+        try {
+            //noinspection StatementWithEmptyBody
+            while (p.nextToken() != null) ;
+            fail("should fail with " + message);
+        } catch (JsonParseException e) {
+            assertThat(e.getMessage(), e.getMessage().contains(message), is(true));
+        }
+    }
+}
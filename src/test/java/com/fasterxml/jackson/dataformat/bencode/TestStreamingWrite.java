@@ -6,6 +6,13 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -79,6 +86,7 @@ public class TestStreamingWrite {
 
         underTest.writeEndObject();
 
+        underTest.flush();
         assertThat(out.toString("ISO-8859-1"), is("d5:lorem5:ipsum9:phasellus9:tincidunt5:vitaed4:egeti0eee"));
     }
 
@@ -132,6 +140,7 @@ public class TestStreamingWrite {
 
         underTest.writeEndObject();
 
+        underTest.flush();
         assertThat(out.toString("ISO-8859-1"), is("d3:asdl5:helloi3ee5:field11:after arraye"));
     }
 
@@ -143,6 +152,7 @@ public class TestStreamingWrite {
         underTest.writeString("skip text".toCharArray(), 5, 4);
         underTest.writeEndArray();
 
+        underTest.flush();
         assertThat(out.toString("ISO-8859-1"), is(
                 "l31:" + new String("árvíztűrő tükörfúrógép".getBytes("UTF-8"), "ISO-8859-1") +
                         "4:null" +
@@ -150,12 +160,186 @@ public class TestStreamingWrite {
 
     }
 
+    @Test
+    public void testBufferedOutput() throws Exception {
+        final List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream target = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(int b) {
+                writes.add(1);
+                super.write(b);
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes.add(len);
+                super.write(b, off, len);
+            }
+        };
+        BEncodeGenerator g = bEncodeFactory.createGenerator(target);
+        g.writeStartArray();
+        for (int i = 0; i < 1000; i++) {
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("name", "item" + i);
+            g.writeEndObject();
+        }
+        // nothing below a full buffer was written so far
+        assertThat(writes.isEmpty(), is(false));
+        for (int len : writes) {
+            assertThat(len >= 4000, is(true));
+        }
+        g.writeBinary(new byte[20000]);
+        g.writeEndArray();
+        g.flush();
+        int flushed = writes.size();
+        assertThat(flushed < 10, is(true));
+        g.close();
+        assertThat(writes.size(), is(flushed));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write('l');
+        for (int i = 0; i < 1000; i++) {
+            String name = "item" + i;
+            expected.write(("d2:idi" + i + "e4:name" + name.length() + ":" + name + "e").getBytes("ISO-8859-1"));
+        }
+        expected.write("20000:".getBytes("ISO-8859-1"));
+        expected.write(new byte[20000]);
+        expected.write('e');
+        assertThat(target.toByteArray(), is(expected.toByteArray()));
+    }
+
+    @Test
+    public void testByteBufferTargets() throws Exception {
+        ByteBuffer fixed = ByteBuffer.allocateDirect(16);
+        fixed.put((byte) 'x');
+        BEncodeGenerator g = bEncodeFactory.createGenerator(fixed);
+        g.writeString("spam");
+        g.close();
+        assertThat(fixed.position(), is(7));
+        fixed.flip();
+        byte[] written = new byte[7];
+        fixed.get(written);
+        assertThat(new String(written, "ISO-8859-1"), is("x4:spam"));
+
+        // heap buffers are written in place, overflowing on the write that doesn't fit
+        ByteBuffer heap = ByteBuffer.allocate(20);
+        heap.position(4);
+        ByteBuffer slice = heap.slice();
+        g = bEncodeFactory.createGenerator(slice);
+        g.writeStartArray();
+        g.writeString("\u00e9\u20ac");
+        g.writeNumber(-12345L);
+        g.flush();
+        assertThat(slice.position(), is(16));
+        assertThat(new String(heap.array(), 4, 16, "UTF-8"), is("l5:\u00e9\u20aci-12345e"));
+        try {
+            g.writeString("spam");
+            fail();
+        } catch (BufferOverflowException e) {
+            assertThat(slice.position(), is(16));
+        }
+
+        ByteBuffer exact = ByteBuffer.allocate(12);
+        g = bEncodeFactory.createGenerator(exact);
+        g.writeString("\u00e9\ud83d\ude00");
+        g.writeNumber(-1L);
+        g.close();
+        assertThat(exact.position(), is(12));
+
+        g = bEncodeFactory.createGenerator(ByteBuffer.allocateDirect(16));
+        g.writeString("longer than the buffer");
+        try {
+            g.flush();
+            fail();
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+
+        for (ByteBuffer initial : new ByteBuffer[]{ByteBuffer.allocateDirect(4), ByteBuffer.allocate(4)}) {
+            g = bEncodeFactory.createGenerator(initial, true);
+            g.writeStartArray();
+            g.writeBinary(new byte[10000]);
+            g.writeNumber(42);
+            g.writeString("\u00e9");
+            g.writeEndArray();
+            g.close();
+            ByteBuffer result = (ByteBuffer) g.getOutputTarget();
+            assertThat(result.isDirect(), is(initial.isDirect()));
+            assertThat(result.position(), is(10016));
+            result.flip();
+            result.position(10007);
+            byte[] tail = new byte[9];
+            result.get(tail);
+            assertThat(new String(tail, "UTF-8"), is("i42e2:\u00e9e"));
+        }
+
+        BEncodeMapper mapper = new BEncodeMapper();
+        ByteBuffer encoded = mapper.writeValueAsByteBuffer(Collections.singletonMap("a", 1), false);
+        assertThat(encoded.remaining(), is(8));
+        assertThat(mapper.readValue(encoded.array(), 0, 8, Map.class).get("a"), is((Object) 1));
+    }
+
+    @Test
+    public void testChannelGatheringWrite() throws Exception {
+        final List<Integer> gathered = new ArrayList<>();
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        GatheringByteChannel channel = new GatheringByteChannel() {
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length) {
+                gathered.add(length);
+                long n = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    n += write(srcs[i]);
+                }
+                return n;
+            }
+
+            @Override
+            public long write(ByteBuffer[] srcs) {
+                return write(srcs, 0, srcs.length);
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                byte[] b = new byte[n];
+                src.get(b);
+                target.write(b, 0, n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        byte[] large = new byte[50000];
+        large[0] = 'q';
+        BEncodeGenerator g = bEncodeFactory.createGenerator(channel);
+        g.writeStartArray();
+        g.writeBinary(large);
+        g.writeEndArray();
+        g.close();
+        // the list start and length prefix went out with the value in one gathering write
+        assertThat(gathered, is(Collections.singletonList(2)));
+        byte[] result = target.toByteArray();
+        assertThat(result.length, is(50008));
+        assertThat(new String(result, 0, 8, "ISO-8859-1"), is("l50000:q"));
+        assertThat(result[result.length - 1], is((byte) 'e'));
+    }
+
     @Test
     public void testRaw() throws Exception {
         underTest.writeRaw("árvíztűrő tükörfúrógép".toCharArray(), 0, 22);
         underTest.writeRaw("árvíztűrő tükörfúrógép");
         underTest.writeRaw("árvíztűrő tükörfúrógép", 10, 12);
         underTest.writeRaw('ű');
+        underTest.flush();
         assertThat(out.toByteArray(),
                 is("árvíztűrő tükörfúrógépárvíztűrő tükörfúrógéptükörfúrógépű".getBytes("UTF-8")));
     }
@@ -1,10 +1,16 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
 import javax.xml.bind.DatatypeConverter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class TestUtils {
     static byte [] BINARY_DATA = DatatypeConverter.parseHexBinary("E3811B9539CACFF680E418124272177C47477157");
@@ -27,4 +33,25 @@ public class TestUtils {
         return buffer.toByteArray();
 
     }
+
+    /**
+     * @return tokens of the whole input, each string, key or integer followed by its value
+     */
+    public static List<Object> collectTokens(JsonParser p) throws IOException {
+        List<Object> tokens = new ArrayList<>();
+        while (p.nextToken() != null) {
+            collectToken(p, tokens);
+        }
+        return tokens;
+    }
+
+    public static void collectToken(JsonParser p, List<Object> tokens) throws IOException {
+        JsonToken t = p.currentToken();
+        tokens.add(t);
+        if (t == JsonToken.VALUE_STRING || t == JsonToken.FIELD_NAME) {
+            tokens.add(Arrays.toString(p.getBinaryValue()));
+        } else if (t == JsonToken.VALUE_NUMBER_INT) {
+            tokens.add(p.getNumberValue());
+        }
+    }
 }
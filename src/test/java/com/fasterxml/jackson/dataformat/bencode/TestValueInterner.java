@@ -0,0 +1,134 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TestValueInterner {
+    private static final String TORRENT = "d8:announce19:http://tracker/anno4:infod5:filesld4:pathl3:dir5:a.txteed4:pathl"
+            + "3:dir5:b.txteeeee";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSharedAcrossParsers() throws Exception {
+        BEncodeValueInterner interner = new BEncodeValueInterner();
+        BEncodeFactory factory = new BEncodeFactory().setValueInterner(interner);
+        byte[] data = TORRENT.getBytes(BEncodeFormat.LATIN_1);
+        File file = folder.newFile("a.torrent");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        JsonParser[] parsers = {factory.createParser(data), factory.createParser(new ByteArrayInputStream(data)),
+                factory.createMappedParser(file)};
+        String first = null;
+        for (JsonParser p : parsers) {
+            int found = 0;
+            while (p.nextToken() != null) {
+                if(p.currentToken() == VALUE_STRING && p.getText().equals("dir")){
+                    if(first == null){
+                        first = p.getText();
+                    }
+                    assertThat(p.getText(), sameInstance(first));
+                    found++;
+                }
+            }
+            assertThat(found, is(2));
+            p.close();
+        }
+        ObjectMapper mapper = new BEncodeMapper(factory);
+        Map<?, ?> a = mapper.readValue(data, Map.class);
+        Map<?, ?> b = mapper.readValue(data, Map.class);
+        assertThat(a.get("announce"), sameInstance(b.get("announce")));
+    }
+
+    @Test
+    public void testBinaryValues() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setValueInterner(new BEncodeValueInterner());
+        JsonParser p = factory.createParser("l3:abc3:abc10:0123456789e");
+        assertThat(p.nextToken(), is(START_ARRAY));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        byte[] first = p.getBinaryValue();
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(p.getBinaryValue(), sameInstance(first));
+        assertThat(p.getText(), is("abc"));
+        assertThat(p.nextToken(), is(VALUE_STRING));
+        assertThat(new String(p.getBinaryValue(), BEncodeFormat.LATIN_1), is("0123456789"));
+    }
+
+    @Test
+    public void testBinaryValuesSharedAcrossParsers() throws Exception {
+        BEncodeFactory factory = new BEncodeFactory().setValueInterner(new BEncodeValueInterner());
+        byte[] data = "d3:abc3:abce".getBytes(BEncodeFormat.LATIN_1);
+        File file = folder.newFile("values.bencode");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        BEncodeNonBlockingParser nonBlocking = factory.createNonBlockingByteArrayParser();
+        nonBlocking.feedInput(data, 0, data.length);
+        nonBlocking.endOfInput();
+        JsonParser[] parsers = {factory.createParser(data), factory.createParser(new ByteArrayInputStream(data)),
+                factory.createMappedParser(file), nonBlocking};
+        byte[] first = null;
+        for (JsonParser p : parsers) {
+            assertThat(p.nextToken(), is(START_OBJECT));
+            assertThat(p.nextToken(), is(FIELD_NAME));
+            byte[] key = p.getBinaryValue();
+            assertThat(p.nextToken(), is(VALUE_STRING));
+            byte[] value = p.getBinaryValue();
+            if(first == null){
+                first = value;
+            }
+            assertThat(value, sameInstance(first));
+            // keys aren't values, they're copied
+            assertThat(key, not(sameInstance(first)));
+            p.close();
+        }
+    }
+
+    @Test
+    public void testBoundedWithEviction() throws Exception {
+        BEncodeValueInterner interner = new BEncodeValueInterner(64, 8);
+        byte[] buf = new byte[16];
+        String hot = interner.internString("hot".getBytes(BEncodeFormat.LATIN_1), 0, 3);
+        for (int i = 0; i < 10000; i++) {
+            byte[] key = ("v" + i).getBytes(BEncodeFormat.LATIN_1);
+            System.arraycopy(key, 0, buf, 3, key.length);
+            assertThat(interner.internString(buf, 3, key.length), is("v" + i));
+            // recently used values survive the clock hand
+            assertThat(interner.internString("hot".getBytes(BEncodeFormat.LATIN_1), 0, 3), sameInstance(hot));
+            assertThat(interner.size() <= 64, is(true));
+        }
+        // still consistent after many evictions
+        List<String> recent = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            recent.add(interner.internString(("w" + i).getBytes(BEncodeFormat.LATIN_1), 0, 2));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThat(interner.internString(("w" + i).getBytes(BEncodeFormat.LATIN_1), 0, 2),
+                    sameInstance(recent.get(i)));
+        }
+        String longValue = "longer than 8";
+        byte[] bytes = longValue.getBytes(BEncodeFormat.LATIN_1);
+        assertThat(interner.internString(bytes, 0, bytes.length), not(sameInstance(
+                interner.internString(bytes, 0, bytes.length))));
+        interner.clear();
+        assertThat(interner.size(), is(0));
+    }
+}
@@ -126,6 +126,30 @@ public class NumberContextTest {
                 is(new BigInteger("45678951506897056489087656679877941321034809041089384467986411")));
     }
 
+    @Test
+    public void testGuessTypeOfSlice() throws Exception {
+        byte[] buf = "i2147483647e2147483648e9223372036854775807e9223372036854775808e".getBytes(LATIN_1);
+        assertThat(NumberContext.guessType(buf, 1, 10, false), is(JsonParser.NumberType.INT));
+        assertThat(NumberContext.guessType(buf, 12, 10, false), is(JsonParser.NumberType.LONG));
+        assertThat(NumberContext.guessType(buf, 12, 10, true), is(JsonParser.NumberType.INT));
+        assertThat(NumberContext.guessType(buf, 23, 19, false), is(JsonParser.NumberType.LONG));
+        assertThat(NumberContext.guessType(buf, 43, 19, false), is(JsonParser.NumberType.BIG_INTEGER));
+        assertThat(NumberContext.guessType(buf, 43, 19, true), is(JsonParser.NumberType.LONG));
+        assertThat(NumberContext.guessType(buf, 1, 3, false), is(JsonParser.NumberType.INT));
+    }
+
+    @Test
+    public void testParseDigits() throws Exception {
+        byte[] buf = "x12345678901234567899223372036854775808".getBytes(LATIN_1);
+        assertThat(NumberContext.parseEightDigits(buf, 1), is(12345678));
+        assertThat(NumberContext.parseEightDigits(buf, 9), is(90123456));
+        for (int digits = 1; digits <= 19; digits++) {
+            assertThat(NumberContext.parseDigits(buf, 1, digits), is(Long.parseLong(new String(buf, 1, digits, LATIN_1))));
+        }
+        // wraps around to Long.MIN_VALUE, which stays the same when negated
+        assertThat(NumberContext.parseDigits(buf, 20, 19), is(Long.MIN_VALUE));
+    }
+
     NumberContext createNumberContext(String input, boolean guess) throws Exception {
         NumberContext numberContext = new NumberContext(
                 new StreamInputContext(
@@ -1,11 +1,15 @@
 package com.fasterxml.jackson.dataformat.bencode.context;
 
+import com.fasterxml.jackson.core.io.ContentReference;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.util.BufferRecycler;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -41,4 +45,70 @@ public class StreamOutputContextTest {
         System.out.println(String.format("longlike: %d", longLikeTime));
         System.out.println(String.format("stringie: %d", stringieTime));
     }
+
+    @Test
+    public void testNumbersMatchToString() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        StreamOutputContext o = new StreamOutputContext(bos, Charset.forName("UTF-8"),
+                new IOContext(new BufferRecycler(), ContentReference.unknown(), false));
+        StringBuilder expected = new StringBuilder();
+        long[] longs = {0, 7, -7, 9, 10, 99, 100, 65535, 65536, -65536, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Integer.MAX_VALUE + 1L, 999999999999999999L, 1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long l : longs) {
+            o.write(l);
+            o.write((byte) ' ');
+            expected.append(l).append(' ');
+            if (l == (int) l) {
+                o.write((int) l);
+                o.write((byte) ' ');
+                expected.append(l).append(' ');
+            }
+        }
+        BigInteger big = BigInteger.ONE;
+        for (int i = 0; i < 300; i++) {
+            big = big.multiply(BigInteger.valueOf(10)).add(BigInteger.valueOf(i % 10));
+            for (BigInteger b : new BigInteger[]{big, big.negate(), BigInteger.ONE.shiftLeft(i * 20),
+                    BigInteger.ONE.shiftLeft(i * 20).subtract(BigInteger.ONE)}) {
+                o.write(b);
+                o.write((byte) ' ');
+                expected.append(b).append(' ');
+            }
+        }
+        BigInteger huge = BigInteger.valueOf(3).pow(5000);
+        o.write(huge);
+        expected.append(huge);
+        o.flush();
+        assertThat(bos.toString("ISO-8859-1"), is(expected.toString()));
+    }
+
+    @Test
+    public void testUtf8MatchesGetBytes() throws Exception {
+        Charset utf8 = Charset.forName("UTF-8");
+        Random random = new Random(42);
+        char[] alphabet = {'a', '/', '\u00e1', '\u0151', '\u20ac', '\ud83d', '\ude00', '\uffff', 0x7f, 0x80, 0x7ff, 0x800};
+        for (int n = 0; n < 200; n++) {
+            char[] chars = new char[random.nextInt(n < 190 ? 50 : 20000)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = random.nextInt(3) == 0 ? alphabet[random.nextInt(alphabet.length)] : 'x';
+            }
+            String text = new String(chars);
+            byte[] expected = text.getBytes(utf8);
+            assertThat(StreamOutputContext.utf8Length(text), is(expected.length));
+            assertThat(StreamOutputContext.utf8Length(chars, 0, chars.length), is(expected.length));
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            StreamOutputContext o = new StreamOutputContext(bos, utf8,
+                    new IOContext(new BufferRecycler(), ContentReference.unknown(), false));
+            // misaligned with the buffer
+            o.write(new byte[n % 7], 0, n % 7);
+            o.writeUtf8(text);
+            o.writeUtf8(chars, 0, chars.length);
+            o.flush();
+            ByteArrayOutputStream all = new ByteArrayOutputStream();
+            all.write(new byte[n % 7]);
+            all.write(expected);
+            all.write(expected);
+            assertThat(bos.toByteArray(), is(all.toByteArray()));
+        }
+    }
 }
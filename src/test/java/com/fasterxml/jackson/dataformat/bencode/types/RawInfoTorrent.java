@@ -0,0 +1,33 @@
+package com.fasterxml.jackson.dataformat.bencode.types;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.dataformat.bencode.RawValueDeserializer;
+
+/**
+ * Keeps the {@code info} dictionary as encoded, e.g. to compute the info-hash.
+ */
+@SuppressWarnings("UnusedDeclaration")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RawInfoTorrent {
+    private String announce;
+
+    @JsonDeserialize(using = RawValueDeserializer.class)
+    private byte[] info;
+
+    public String getAnnounce() {
+        return announce;
+    }
+
+    public void setAnnounce(String announce) {
+        this.announce = announce;
+    }
+
+    public byte[] getInfo() {
+        return info;
+    }
+
+    public void setInfo(byte[] info) {
+        this.info = info;
+    }
+}
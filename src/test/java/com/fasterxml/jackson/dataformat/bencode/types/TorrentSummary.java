@@ -0,0 +1,55 @@
+package com.fasterxml.jackson.dataformat.bencode.types;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Binds only a few fields of a torrent, everything else (most notably {@code info.pieces}) is skipped.
+ */
+@SuppressWarnings("UnusedDeclaration")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TorrentSummary {
+    private String announce;
+
+    private Info info;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Info {
+        private String name;
+
+        @JsonProperty("piece length")
+        private int pieceLength;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getPieceLength() {
+            return pieceLength;
+        }
+
+        public void setPieceLength(int pieceLength) {
+            this.pieceLength = pieceLength;
+        }
+    }
+
+    public String getAnnounce() {
+        return announce;
+    }
+
+    public void setAnnounce(String announce) {
+        this.announce = announce;
+    }
+
+    public Info getInfo() {
+        return info;
+    }
+
+    public void setInfo(Info info) {
+        this.info = info;
+    }
+}